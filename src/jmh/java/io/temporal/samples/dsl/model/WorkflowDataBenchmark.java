@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per activity cost of {@link WorkflowData} (get the customer argument, add the
+ * activity result) with the previous string round trip and tree conversion. Run with the gc
+ * profiler to see allocations per operation:
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=WorkflowDataBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkflowDataBenchmark {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final String DATA_INPUT =
+      "{\"customer\": {\"name\": \"John\", \"age\": 22, \"transactions\": [100, -50, 20]},"
+          + " \"results\": []}";
+
+  private final ActResult result = new ActResult("InvokeBankingService", "invoked");
+  private WorkflowData workflowData;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    workflowData = new WorkflowData(DATA_INPUT);
+  }
+
+  @Benchmark
+  public Customer getCustomerStringRoundTrip() throws Exception {
+    return mapper.readValue(
+        workflowData.getValue().get("customer").toPrettyString(), Customer.class);
+  }
+
+  @Benchmark
+  public Customer getCustomer() {
+    return workflowData.getCustomer();
+  }
+
+  @Benchmark
+  public Customer getCustomerAfterChange() {
+    // worst case, the customer changed (e.g. by a signal) since the last call, alternate between
+    // two ages so every call converts the node again
+    ObjectNode customer = (ObjectNode) workflowData.getValue().get("customer");
+    customer.put("age", customer.get("age").asInt() == 22 ? 23 : 22);
+    return workflowData.getCustomer();
+  }
+
+  @Benchmark
+  public ObjectNode addResultsValueToTree() {
+    ArrayNode results = (ArrayNode) workflowData.getValue().get("results");
+    results.add(mapper.valueToTree(result));
+    results.removeAll();
+    return workflowData.getValue();
+  }
+
+  @Benchmark
+  public ObjectNode addResults() {
+    workflowData.addResults(result);
+    ((ArrayNode) workflowData.getValue().get("results")).removeAll();
+    return workflowData.getValue();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.samples.dsl.model.ActResult;
+import io.temporal.samples.dsl.model.WorkflowData;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CompressionCodec} encode and decode latency for DSL {@link WorkflowData} payloads
+ * with a growing number of activity results. The compression ratio of each configuration is
+ * printed during setup.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=CompressionCodecBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionCodecBenchmark {
+
+  private static final String DATA_INPUT =
+      "{\"customer\": {\"name\": \"John\", \"age\": 22, \"transactions\": [100, -50, 20]},"
+          + " \"results\": []}";
+
+  @Param({"DEFLATE", "ZSTD", "LZ4"})
+  public CompressionCodec.Algorithm algorithm;
+
+  @Param({"10", "100", "1000"})
+  public int resultCount;
+
+  private CompressionCodec codec;
+  private List<Payload> plain;
+  private List<Payload> compressed;
+
+  @Setup
+  public void setUp() {
+    WorkflowData workflowData = new WorkflowData(DATA_INPUT);
+    for (int i = 0; i < resultCount; i++) {
+      workflowData.addResults(
+          new ActResult("InvokeBankingService", "Invoked transaction " + i + " for John"));
+    }
+    plain =
+        Collections.singletonList(
+            DefaultDataConverter.newDefaultInstance().toPayload(workflowData.getValue()).get());
+    codec = new CompressionCodec(algorithm, 0);
+    compressed = codec.encode(plain);
+    System.out.printf(
+        "%n%s, %d results: %d -> %d bytes, ratio %.2f%n",
+        algorithm,
+        resultCount,
+        plain.get(0).getSerializedSize(),
+        compressed.get(0).getSerializedSize(),
+        (double) plain.get(0).getSerializedSize() / compressed.get(0).getSerializedSize());
+  }
+
+  @Benchmark
+  public List<Payload> encode() {
+    return codec.encode(plain);
+  }
+
+  @Benchmark
+  public List<Payload> decode() {
+    return codec.decode(compressed);
+  }
+}
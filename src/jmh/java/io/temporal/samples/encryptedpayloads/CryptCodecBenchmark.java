@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link CryptCodec} with the previous implementation that looked up a new {@link Cipher},
+ * key and {@link SecureRandom} for every payload and copied the data between intermediate arrays.
+ * Run with the gc profiler to see allocations per operation:
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=CryptCodecBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptCodecBenchmark {
+
+  private static final String KEY_ID = "test-key-test-key-test-key-test!";
+  private static final String CIPHER = "AES/GCM/NoPadding";
+
+  @Param({"64", "4096", "1048576"})
+  public int payloadSize;
+
+  private final CryptCodec codec = new CryptCodec();
+  private List<Payload> plain;
+  private List<Payload> encrypted;
+
+  @Setup
+  public void setUp() {
+    byte[] data = new byte[payloadSize];
+    new Random(42).nextBytes(data);
+    plain =
+        Collections.singletonList(
+            Payload.newBuilder()
+                .putMetadata(
+                    EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("json/plain"))
+                .setData(ByteString.copyFrom(data))
+                .build());
+    encrypted = codec.encode(plain);
+  }
+
+  @Benchmark
+  public List<Payload> encode() {
+    return codec.encode(plain);
+  }
+
+  @Benchmark
+  public List<Payload> decode() {
+    return codec.decode(encrypted);
+  }
+
+  @Benchmark
+  public Payload encodeUncached() throws Exception {
+    byte[] nonce = new byte[12];
+    new SecureRandom().nextBytes(nonce);
+    SecretKey key = new SecretKeySpec(KEY_ID.getBytes(StandardCharsets.UTF_8), "AES");
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+    byte[] encryptedData = cipher.doFinal(plain.get(0).toByteArray());
+    byte[] data =
+        ByteBuffer.allocate(nonce.length + encryptedData.length)
+            .put(nonce)
+            .put(encryptedData)
+            .array();
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, CryptCodec.METADATA_ENCODING)
+        .putMetadata(
+            CryptCodec.METADATA_ENCRYPTION_CIPHER_KEY, CryptCodec.METADATA_ENCRYPTION_CIPHER)
+        .putMetadata(CryptCodec.METADATA_ENCRYPTION_KEY_ID_KEY, ByteString.copyFromUtf8(KEY_ID))
+        .setData(ByteString.copyFrom(data))
+        .build();
+  }
+
+  @Benchmark
+  public Payload decodeUncached() throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(encrypted.get(0).getData().toByteArray());
+    byte[] nonce = new byte[12];
+    buffer.get(nonce);
+    byte[] encryptedData = new byte[buffer.remaining()];
+    buffer.get(encryptedData);
+    SecretKey key = new SecretKeySpec(KEY_ID.getBytes(StandardCharsets.UTF_8), "AES");
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+    return Payload.parseFrom(cipher.doFinal(encryptedData));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sequential and parallel {@link CryptCodec} encoding of payload lists. The list size
+ * (payloadCount * payloadSize) where the parallel variant starts to win is the crossover point
+ * that {@link CryptCodec#DEFAULT_PARALLEL_THRESHOLD_BYTES} is based on.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=CryptCodecParallelBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptCodecParallelBenchmark {
+
+  @Param({"2", "8", "32"})
+  public int payloadCount;
+
+  @Param({"1024", "16384", "262144"})
+  public int payloadSize;
+
+  private ExecutorService executor;
+  private CryptCodec sequential;
+  private CryptCodec parallel;
+  private List<Payload> plain;
+  private List<Payload> encrypted;
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    KeyProvider keyProvider = new CryptCodec.HardCodedKeyProvider();
+    sequential = new CryptCodec(keyProvider, Long.MAX_VALUE, executor);
+    parallel = new CryptCodec(keyProvider, 0, executor);
+    Random random = new Random(42);
+    plain = new ArrayList<>(payloadCount);
+    for (int i = 0; i < payloadCount; i++) {
+      byte[] data = new byte[payloadSize];
+      random.nextBytes(data);
+      plain.add(
+          Payload.newBuilder()
+              .putMetadata(
+                  EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("json/plain"))
+              .setData(ByteString.copyFrom(data))
+              .build());
+    }
+    encrypted = sequential.encode(plain);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public List<Payload> encodeSequential() {
+    return sequential.encode(plain);
+  }
+
+  @Benchmark
+  public List<Payload> encodeParallel() {
+    return parallel.encode(plain);
+  }
+
+  @Benchmark
+  public List<Payload> decodeSequential() {
+    return sequential.decode(encrypted);
+  }
+
+  @Benchmark
+  public List<Payload> decodeParallel() {
+    return parallel.decode(encrypted);
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.interceptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares increments of {@link PerWorkflowCounters} with the previous synchronized map of maps
+ * under contention, with all threads updating the counters of a few workflows.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=PerWorkflowCountersBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerWorkflowCountersBenchmark {
+
+  private static final String[] WORKFLOW_IDS = {"workflow-0", "workflow-1", "workflow-2"};
+
+  private final PerWorkflowCounters<WorkerCounter.Type> counters =
+      new PerWorkflowCounters<>(WorkerCounter.Type.class, PerWorkflowCounters.DEFAULT_TTL);
+
+  private final Map<String, Map<String, Integer>> synchronizedMap =
+      Collections.synchronizedMap(new HashMap<>());
+
+  @Benchmark
+  @Threads(1)
+  public void counters1() {
+    incrementCounters();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void counters8() {
+    incrementCounters();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void counters32() {
+    incrementCounters();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void synchronizedMap1() {
+    incrementSynchronizedMap();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void synchronizedMap8() {
+    incrementSynchronizedMap();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public void synchronizedMap32() {
+    incrementSynchronizedMap();
+  }
+
+  private void incrementCounters() {
+    counters.increment(randomWorkflowId(), WorkerCounter.Type.SIGNALS);
+  }
+
+  // the check-then-put sequence of the previous implementation
+  private void incrementSynchronizedMap() {
+    String workflowId = randomWorkflowId();
+    String type = "numOfSignals";
+    if (!synchronizedMap.containsKey(workflowId)) {
+      synchronizedMap.put(workflowId, new HashMap<>());
+    }
+    if (synchronizedMap.get(workflowId).get(type) == null) {
+      synchronizedMap.get(workflowId).put(type, 1);
+    } else {
+      int current = synchronizedMap.get(workflowId).get(type).intValue();
+      synchronizedMap.get(workflowId).put(type, current + 1);
+    }
+  }
+
+  private static String randomWorkflowId() {
+    return WORKFLOW_IDS[ThreadLocalRandom.current().nextInt(WORKFLOW_IDS.length)];
+  }
+}
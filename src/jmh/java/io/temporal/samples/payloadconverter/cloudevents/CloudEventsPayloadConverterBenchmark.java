@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.cloudevents;
+
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.temporal.api.common.v1.Payload;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CloudEventsPayloadConverter} round trip latency of a CloudEvent with binary data
+ * for the JSON and binary encodings. CloudEventsPayloadConverterTest checks the payload sizes.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=CloudEventsPayloadConverterBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloudEventsPayloadConverterBenchmark {
+
+  @Param({"JSON", "BINARY"})
+  public CloudEventsPayloadConverter.Encoding encoding;
+
+  @Param({"256", "4096", "65536"})
+  public int dataSize;
+
+  private CloudEventsPayloadConverter converter;
+  private CloudEvent event;
+
+  @Setup
+  public void setUp() {
+    converter = new CloudEventsPayloadConverter(encoding);
+    byte[] data = new byte[dataSize];
+    new Random(42).nextBytes(data);
+    event =
+        CloudEventBuilder.v1()
+            .withId("100")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withData("application/octet-stream", data)
+            .build();
+  }
+
+  @Benchmark
+  public CloudEvent roundTrip() {
+    Payload payload = converter.toData(event).get();
+    return converter.fromData(payload, CloudEvent.class, CloudEvent.class);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.crypto;
+
+import com.codingrodent.jackson.crypto.CryptoModule;
+import com.codingrodent.jackson.crypto.EncryptionService;
+import com.codingrodent.jackson.crypto.PasswordCryptoContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.JacksonJsonPayloadConverter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MyCustomer} round trips per second through the converter shared by {@link
+ * CryptoPayloadConverterFactory}, compared with a shared converter using the library's {@link
+ * PasswordCryptoContext}, which derives a key for every encrypted field, and with configuring a new
+ * converter as the sample did for every client. The difference between the first two is the per
+ * field key derivation, three fields encrypted and decrypted per round trip.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=CryptoPayloadConverterBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoPayloadConverterBenchmark {
+
+  private static final String PASSWORD = "encryptDecryptPassword";
+
+  private final MyCustomer customer = new MyCustomer("John", 22);
+  private final JacksonJsonPayloadConverter passwordContextConverter =
+      newPasswordContextConverter();
+
+  @Benchmark
+  public MyCustomer roundTrip() {
+    return roundTrip(CryptoPayloadConverterFactory.getConverter(PASSWORD));
+  }
+
+  @Benchmark
+  public MyCustomer roundTripPasswordContext() {
+    return roundTrip(passwordContextConverter);
+  }
+
+  @Benchmark
+  public MyCustomer roundTripNewConverter() {
+    return roundTrip(newPasswordContextConverter());
+  }
+
+  private static JacksonJsonPayloadConverter newPasswordContextConverter() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    PasswordCryptoContext cryptoContext =
+        new PasswordCryptoContext(
+            PASSWORD, PASSWORD, PasswordCryptoContext.CIPHER_NAME, PasswordCryptoContext.KEY_NAME);
+    EncryptionService encryptionService = new EncryptionService(objectMapper, cryptoContext);
+    objectMapper.registerModule(new CryptoModule().addEncryptionService(encryptionService));
+    return new JacksonJsonPayloadConverter(objectMapper);
+  }
+
+  private MyCustomer roundTrip(JacksonJsonPayloadConverter converter) {
+    Payload payload = converter.toData(customer).get();
+    return converter.fromData(payload, MyCustomer.class, MyCustomer.class);
+  }
+}
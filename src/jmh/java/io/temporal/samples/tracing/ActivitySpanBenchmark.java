@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.temporal.opentracing.OpenTracingOptions;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the span the worker interceptor opens around each activity of the {@link
+ * io.temporal.samples.tracing.workflow.TracingWorkflowImpl} and {@link
+ * io.temporal.samples.tracing.workflow.TracingChildWorkflowImpl} path. Like on a worker, the span
+ * context is decoded from the header written by the workflow and the span is created as its child,
+ * so it follows the sampling decision taken at the root of the trace: a sampled trace pays for
+ * recording and exporting the span, an unsampled one only for the propagation. Spans go through
+ * {@link BoundedBatchSpanProcessor} to an exporter that discards them.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=ActivitySpanBenchmark</pre>
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivitySpanBenchmark {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+  private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+
+  @Param({"true", "false"})
+  public boolean parentSampled;
+
+  private SdkTracerProvider tracerProvider;
+  private OpenTracingOptions tracingOptions;
+  private Map<String, String> header;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    tracerProvider =
+        JaegerUtils.newTracerProvider(
+            new BoundedBatchSpanProcessor(
+                new DiscardingExporter(),
+                BoundedBatchSpanProcessor.DEFAULT_MAX_QUEUE_SIZE,
+                BoundedBatchSpanProcessor.DEFAULT_MAX_BATCH_SIZE,
+                Duration.ofMillis(100),
+                new SimpleMeterRegistry()),
+            // only root spans are sampled by the configured sampler
+            SamplingConfig.probabilistic(0.1));
+    tracingOptions = JaegerUtils.getOpenTelemetryOptions(tracerProvider);
+    // the W3C trace context the client and workflow interceptors propagate
+    header =
+        Collections.singletonMap(
+            "traceparent",
+            "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-" + (parentSampled ? "01" : "00"));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracerProvider.close();
+  }
+
+  @Benchmark
+  public void activitySpan() {
+    Tracer tracer = tracingOptions.getTracer();
+    SpanContext parent = tracingOptions.getSpanContextCodec().decode(header, tracer);
+    Span span =
+        tracer
+            .buildSpan("RunActivity:Greet")
+            .asChildOf(parent)
+            .withTag("workflowId", "tracingWorkflow")
+            .withTag("runId", "benchmark")
+            .start();
+    try (Scope scope = tracer.activateSpan(span)) {
+      // the activity runs here
+    } finally {
+      span.finish();
+    }
+  }
+
+  private static class DiscardingExporter implements SpanExporter {
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
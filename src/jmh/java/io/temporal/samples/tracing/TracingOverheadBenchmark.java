@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.temporal.client.WorkflowClientOptions;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.opentracing.OpenTracingClientInterceptor;
+import io.temporal.opentracing.OpenTracingOptions;
+import io.temporal.opentracing.OpenTracingWorkerInterceptor;
+import io.temporal.samples.tracing.workflow.TracingActivitiesImpl;
+import io.temporal.samples.tracing.workflow.TracingChildWorkflowImpl;
+import io.temporal.samples.tracing.workflow.TracingWorkflow;
+import io.temporal.samples.tracing.workflow.TracingWorkflowImpl;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerFactoryOptions;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the tracing overhead of the sample: {@link #workflow} runs {@link TracingWorkflowImpl}
+ * with its {@link TracingChildWorkflowImpl} and activity in a test environment. Spans are exported
+ * to an {@link InMemorySpanCollector}, so the numbers exclude the network. {@link
+ * ActivitySpanBenchmark} isolates the cost of a single activity span.
+ *
+ * <pre>./gradlew jmh -PjmhIncludes=TracingOverheadBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingOverheadBenchmark {
+
+  private static final String TASK_QUEUE = "TracingOverheadBenchmark";
+
+  /** NONE runs without the tracing interceptors. */
+  @Param({"NONE", "ALWAYS_ON", "PROBABILISTIC"})
+  public String sampler;
+
+  private final InMemorySpanCollector collector = new InMemorySpanCollector();
+  private SdkTracerProvider tracerProvider;
+  private TestWorkflowEnvironment testEnvironment;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    TestEnvironmentOptions.Builder environmentOptions = TestEnvironmentOptions.newBuilder();
+    if (!sampler.equals("NONE")) {
+      SamplingConfig samplingConfig =
+          sampler.equals("ALWAYS_ON")
+              ? SamplingConfig.alwaysOn()
+              : SamplingConfig.probabilistic(0.1);
+      tracerProvider =
+          JaegerUtils.newTracerProvider(
+              new BoundedBatchSpanProcessor(
+                  collector,
+                  BoundedBatchSpanProcessor.DEFAULT_MAX_QUEUE_SIZE,
+                  BoundedBatchSpanProcessor.DEFAULT_MAX_BATCH_SIZE,
+                  Duration.ofMillis(100),
+                  new SimpleMeterRegistry()),
+              samplingConfig);
+      OpenTracingOptions tracingOptions = JaegerUtils.getOpenTelemetryOptions(tracerProvider);
+      environmentOptions
+          .setWorkflowClientOptions(
+              WorkflowClientOptions.newBuilder()
+                  .setInterceptors(new OpenTracingClientInterceptor(tracingOptions))
+                  .validateAndBuildWithDefaults())
+          .setWorkerFactoryOptions(
+              WorkerFactoryOptions.newBuilder()
+                  .setWorkerInterceptors(new OpenTracingWorkerInterceptor(tracingOptions))
+                  .validateAndBuildWithDefaults());
+    }
+    testEnvironment = TestWorkflowEnvironment.newInstance(environmentOptions.build());
+    Worker worker = testEnvironment.newWorker(TASK_QUEUE);
+    worker.registerWorkflowImplementationTypes(
+        TracingWorkflowImpl.class, TracingChildWorkflowImpl.class);
+    worker.registerActivitiesImplementations(new TracingActivitiesImpl());
+    testEnvironment.start();
+  }
+
+  @TearDown(Level.Iteration)
+  public void clearSpans() {
+    // keep the collector from growing over the whole trial
+    collector.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    testEnvironment.close();
+    if (tracerProvider != null) {
+      tracerProvider.close();
+    }
+  }
+
+  @Benchmark
+  public String workflow() {
+    TracingWorkflow workflow =
+        testEnvironment
+            .getWorkflowClient()
+            .newWorkflowStub(
+                TracingWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(TASK_QUEUE).build());
+    WorkflowStub untyped = WorkflowStub.fromTyped(workflow);
+    untyped.signalWithStart("setLanguage", new Object[] {"Spanish"}, new Object[] {"John"});
+    return untyped.getResult(String.class);
+  }
+}
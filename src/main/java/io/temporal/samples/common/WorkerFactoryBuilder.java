@@ -0,0 +1,165 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.common;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.temporal.client.WorkflowClient;
+import io.temporal.common.interceptors.WorkerInterceptor;
+import io.temporal.samples.metrics.MetricsUtils;
+import io.temporal.worker.WorkerFactory;
+import io.temporal.worker.WorkerFactoryOptions;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the worker factories of the samples. The sticky workflow cache size and the max number
+ * of workflow threads default to the {@value #WORKFLOW_CACHE_SIZE_PROPERTY} and {@value
+ * #MAX_WORKFLOW_THREAD_COUNT_PROPERTY} system properties, so they can be tuned without code
+ * changes. An undersized cache shows up as forced replays, see {@link
+ * WorkflowCacheMetricsInterceptor}, which is registered on every factory. Unless a registry is
+ * set, the metrics are served for Prometheus when the {@value #METRICS_PORT_PROPERTY} system
+ * property is set, 0 picks a free port which is logged. Otherwise they are kept in memory only.
+ */
+public final class WorkerFactoryBuilder {
+
+  public static final String WORKFLOW_CACHE_SIZE_PROPERTY = "temporal.workflowCacheSize";
+  public static final String MAX_WORKFLOW_THREAD_COUNT_PROPERTY =
+      "temporal.maxWorkflowThreadCount";
+  public static final int DEFAULT_WORKFLOW_CACHE_SIZE = 600;
+  public static final int DEFAULT_MAX_WORKFLOW_THREAD_COUNT = 600;
+  public static final String METRICS_PORT_PROPERTY = "temporal.metricsPort";
+
+  private static final Logger log = LoggerFactory.getLogger(WorkerFactoryBuilder.class);
+  private static final AtomicInteger factoryCount = new AtomicInteger();
+
+  private final WorkflowClient client;
+  private int workflowCacheSize = defaultWorkflowCacheSize();
+  private int maxWorkflowThreadCount = defaultMaxWorkflowThreadCount();
+  private MeterRegistry registry;
+  private String name = "factory-" + factoryCount.incrementAndGet();
+  private WorkerInterceptor[] workerInterceptors = new WorkerInterceptor[0];
+
+  private WorkerFactoryBuilder(WorkflowClient client) {
+    this.client = client;
+  }
+
+  public static WorkerFactoryBuilder newBuilder(WorkflowClient client) {
+    return new WorkerFactoryBuilder(client);
+  }
+
+  /** The {@value #WORKFLOW_CACHE_SIZE_PROPERTY} system property, or the default. */
+  public static int defaultWorkflowCacheSize() {
+    return Integer.getInteger(WORKFLOW_CACHE_SIZE_PROPERTY, DEFAULT_WORKFLOW_CACHE_SIZE);
+  }
+
+  /** The {@value #MAX_WORKFLOW_THREAD_COUNT_PROPERTY} system property, or the default. */
+  public static int defaultMaxWorkflowThreadCount() {
+    return Integer.getInteger(
+        MAX_WORKFLOW_THREAD_COUNT_PROPERTY, DEFAULT_MAX_WORKFLOW_THREAD_COUNT);
+  }
+
+  /** Number of workflow executions kept in memory between workflow tasks. */
+  public WorkerFactoryBuilder setWorkflowCacheSize(int workflowCacheSize) {
+    this.workflowCacheSize = workflowCacheSize;
+    return this;
+  }
+
+  /** Number of threads shared by the workflow executions of all workers of the factory. */
+  public WorkerFactoryBuilder setMaxWorkflowThreadCount(int maxWorkflowThreadCount) {
+    this.maxWorkflowThreadCount = maxWorkflowThreadCount;
+    return this;
+  }
+
+  /**
+   * Registry of the cache metrics, the caller exports it. Without one the builder creates its own
+   * registry, see the class documentation.
+   */
+  public WorkerFactoryBuilder setMeterRegistry(MeterRegistry registry) {
+    this.registry = registry;
+    return this;
+  }
+
+  /** Value of the factory tag of the cache metrics, factory-1, factory-2... by default. */
+  public WorkerFactoryBuilder setName(String name) {
+    this.name = name;
+    return this;
+  }
+
+  public WorkerFactoryBuilder setWorkerInterceptors(WorkerInterceptor... workerInterceptors) {
+    this.workerInterceptors = workerInterceptors;
+    return this;
+  }
+
+  public WorkerFactoryOptions buildOptions() {
+    return buildOptions(newCacheMetrics());
+  }
+
+  public WorkerFactory build() {
+    WorkflowCacheMetricsInterceptor cacheMetrics = newCacheMetrics();
+    WorkerFactory factory = WorkerFactory.newInstance(client, buildOptions(cacheMetrics));
+    cacheMetrics.setShutdownCheck(factory::isShutdown);
+    return factory;
+  }
+
+  private WorkflowCacheMetricsInterceptor newCacheMetrics() {
+    if (registry == null) {
+      Integer metricsPort = Integer.getInteger(METRICS_PORT_PROPERTY);
+      registry =
+          metricsPort == null ? new SimpleMeterRegistry() : startScrapedRegistry(metricsPort);
+    }
+    return new WorkflowCacheMetricsInterceptor(registry, workflowCacheSize, name);
+  }
+
+  private WorkerFactoryOptions buildOptions(WorkflowCacheMetricsInterceptor cacheMetrics) {
+    if (workflowCacheSize > maxWorkflowThreadCount) {
+      // every cached execution blocked in workflow code holds a thread, when they run out the
+      // SDK evicts cached executions to free threads
+      log.warn(
+          "Workflow cache size {} is larger than max workflow thread count {}, "
+              + "executions will be evicted to free threads",
+          workflowCacheSize,
+          maxWorkflowThreadCount);
+    }
+    WorkerInterceptor[] interceptors =
+        Arrays.copyOf(workerInterceptors, workerInterceptors.length + 1);
+    interceptors[workerInterceptors.length] = cacheMetrics;
+    return WorkerFactoryOptions.newBuilder()
+        .setWorkflowCacheSize(workflowCacheSize)
+        .setMaxWorkflowThreadCount(maxWorkflowThreadCount)
+        .setWorkerInterceptors(interceptors)
+        .validateAndBuildWithDefaults();
+  }
+
+  private static PrometheusMeterRegistry startScrapedRegistry(int port) {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    HttpServer scrapeEndpoint = MetricsUtils.startPrometheusScrapeEndpoint(registry, port);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> scrapeEndpoint.stop(1)));
+    log.info(
+        "Worker metrics are served at http://localhost:{}/prometheus",
+        scrapeEndpoint.getAddress().getPort());
+    return registry;
+  }
+}
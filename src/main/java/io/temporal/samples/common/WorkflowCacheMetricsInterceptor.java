@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.common;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkerInterceptor;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptorBase;
+import io.temporal.workflow.Workflow;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Reports how the sticky workflow cache of a worker factory is used:
+ *
+ * <ul>
+ *   <li>{@value #CAPACITY}: the configured cache size.
+ *   <li>{@value #EXECUTIONS}: the workflow executions that currently have a workflow thread, which
+ *       is the executions held in the cache.
+ *   <li>{@value #FORCED_REPLAYS}: executions that were not in the cache, so their whole history
+ *       had to be replayed before the new workflow task could be processed.
+ *   <li>{@value #EVICTIONS}: running executions that were removed from the cache, each of them
+ *       causes a forced replay on its next workflow task.
+ * </ul>
+ *
+ * All of them are tagged with {@value #FACTORY_TAG}, as every factory has its own cache.
+ */
+public class WorkflowCacheMetricsInterceptor implements WorkerInterceptor {
+
+  static final String CAPACITY = "workflow_cache_capacity";
+  static final String EXECUTIONS = "workflow_cache_executions";
+  static final String FORCED_REPLAYS = "workflow_cache_forced_replays";
+  static final String EVICTIONS = "workflow_cache_evictions";
+  static final String WORKFLOW_TYPE_TAG = "workflow_type";
+  static final String FACTORY_TAG = "worker_factory";
+
+  // the SDK destroys the workflow thread of an execution that leaves the cache with this error,
+  // and also ends the thread of a run that continues as new with it
+  private static final String DESTROY_WORKFLOW_THREAD_ERROR =
+      "io.temporal.internal.sync.DestroyWorkflowThreadError";
+
+  // Evictions are counted off the workflow thread, see recordEviction
+  private static final Executor evictionRecorder =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "workflow-cache-evictions");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final MeterRegistry registry;
+  private final String factoryName;
+  private final AtomicInteger executions = new AtomicInteger();
+  private volatile BooleanSupplier shutdown = () -> false;
+
+  /**
+   * @param factoryName value of the {@value #FACTORY_TAG} tag, unique among the factories that
+   *     report to the registry
+   */
+  public WorkflowCacheMetricsInterceptor(
+      MeterRegistry registry, int workflowCacheSize, String factoryName) {
+    this.registry = registry;
+    this.factoryName = factoryName;
+    Gauge.builder(CAPACITY, () -> workflowCacheSize)
+        .tag(FACTORY_TAG, factoryName)
+        .register(registry);
+    Gauge.builder(EXECUTIONS, executions, AtomicInteger::get)
+        .tag(FACTORY_TAG, factoryName)
+        .register(registry);
+  }
+
+  /**
+   * Tells whether the factory started shutting down, which destroys the threads of all cached
+   * executions. These are not counted as evictions.
+   */
+  void setShutdownCheck(BooleanSupplier shutdown) {
+    this.shutdown = shutdown;
+  }
+
+  private void recordEviction(String workflowType) {
+    // WorkerFactory.isShutdown takes the factory lock, which a shutdown holds while it waits for
+    // the workflow threads to be destroyed, so it can't be called from the workflow thread
+    evictionRecorder.execute(
+        () -> {
+          if (!shutdown.getAsBoolean()) {
+            registry
+                .counter(EVICTIONS, WORKFLOW_TYPE_TAG, workflowType, FACTORY_TAG, factoryName)
+                .increment();
+          }
+        });
+  }
+
+  @Override
+  public WorkflowInboundCallsInterceptor interceptWorkflow(WorkflowInboundCallsInterceptor next) {
+    return new CacheMetricsWorkflowInboundCallsInterceptor(next);
+  }
+
+  @Override
+  public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+    return next;
+  }
+
+  private class CacheMetricsWorkflowInboundCallsInterceptor
+      extends WorkflowInboundCallsInterceptorBase {
+
+    private boolean continuedAsNew;
+
+    CacheMetricsWorkflowInboundCallsInterceptor(WorkflowInboundCallsInterceptor next) {
+      super(next);
+    }
+
+    @Override
+    public void init(WorkflowOutboundCallsInterceptor outboundCalls) {
+      super.init(
+          new WorkflowOutboundCallsInterceptorBase(outboundCalls) {
+            @Override
+            public void continueAsNew(ContinueAsNewInput input) {
+              continuedAsNew = true;
+              super.continueAsNew(input);
+            }
+          });
+    }
+
+    @Override
+    public WorkflowOutput execute(WorkflowInput input) {
+      String workflowType = Workflow.getInfo().getWorkflowType();
+      // A new execution starts with its first workflow task, anything else replays the history
+      if (Workflow.isReplaying()) {
+        registry
+            .counter(FORCED_REPLAYS, WORKFLOW_TYPE_TAG, workflowType, FACTORY_TAG, factoryName)
+            .increment();
+      }
+      executions.incrementAndGet();
+      try {
+        return super.execute(input);
+      } catch (Error e) {
+        // Other errors come from the workflow code
+        if (e.getClass().getName().equals(DESTROY_WORKFLOW_THREAD_ERROR) && !continuedAsNew) {
+          recordEviction(workflowType);
+        }
+        throw e;
+      } finally {
+        executions.decrementAndGet();
+      }
+    }
+  }
+}
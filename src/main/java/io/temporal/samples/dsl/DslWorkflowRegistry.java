@@ -0,0 +1,330 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import io.serverlessworkflow.api.Workflow;
+import io.serverlessworkflow.api.validation.ValidationError;
+import io.serverlessworkflow.validation.WorkflowValidatorImpl;
+import io.temporal.samples.dsl.plan.DslExecutionPlan;
+import io.temporal.samples.dsl.utils.JQFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of DSL workflow definitions keyed by id-version. Definitions are loaded from directories
+ * or classpath prefixes, validated and compiled into execution plans. A registered id-version is
+ * never replaced, as running workflows (and their replays) must keep seeing the same definition.
+ * New definitions, or new versions of existing ones, can be picked up at runtime by watching a
+ * directory.
+ */
+public class DslWorkflowRegistry implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DslWorkflowRegistry.class);
+
+  /** Classpath prefix the default registry loads its definitions from */
+  public static final String DEFAULT_CLASSPATH_PREFIX = "dsl";
+
+  /** Registered dsl workflow definition with its compiled execution plan */
+  public static class Definition {
+    private final Workflow workflow;
+    private final DslExecutionPlan executionPlan;
+    // normalized json form, so the same definition in json and yaml compares equal
+    private final String normalizedSource;
+
+    private Definition(Workflow workflow, DslExecutionPlan executionPlan) {
+      this.workflow = workflow;
+      this.executionPlan = executionPlan;
+      this.normalizedSource = Workflow.toJson(workflow);
+    }
+
+    public Workflow getWorkflow() {
+      return workflow;
+    }
+
+    public DslExecutionPlan getExecutionPlan() {
+      return executionPlan;
+    }
+  }
+
+  private static volatile DslWorkflowRegistry instance;
+
+  private final Map<String, Definition> definitions = new ConcurrentHashMap<>();
+  private volatile WatchService watchService;
+
+  /** Returns the registry shared by workers and starters, loaded from the "dsl" classpath prefix */
+  public static DslWorkflowRegistry getInstance() {
+    if (instance == null) {
+      synchronized (DslWorkflowRegistry.class) {
+        if (instance == null) {
+          DslWorkflowRegistry registry = new DslWorkflowRegistry();
+          registry.loadClasspath(DEFAULT_CLASSPATH_PREFIX);
+          instance = registry;
+        }
+      }
+    }
+    return instance;
+  }
+
+  public static String key(String workflowId, String workflowVersion) {
+    return workflowId + "-" + workflowVersion;
+  }
+
+  public Workflow getWorkflow(String workflowId, String workflowVersion) {
+    Definition definition = definitions.get(key(workflowId, workflowVersion));
+    return definition == null ? null : definition.getWorkflow();
+  }
+
+  public DslExecutionPlan getExecutionPlan(String workflowId, String workflowVersion) {
+    Definition definition = definitions.get(key(workflowId, workflowVersion));
+    return definition == null ? null : definition.getExecutionPlan();
+  }
+
+  /** Returns an immutable snapshot of all registered definitions keyed by id-version */
+  public Map<String, Definition> getDefinitions() {
+    return Collections.unmodifiableMap(new ConcurrentHashMap<>(definitions));
+  }
+
+  /**
+   * Loads all definitions found under the classpath prefix, from both directories and jars. When
+   * the same id-version is found more than once the first one on the classpath wins.
+   *
+   * @return number of newly registered definitions
+   */
+  public int loadClasspath(String prefix) {
+    int registered = 0;
+    try {
+      Enumeration<URL> roots = DslWorkflowRegistry.class.getClassLoader().getResources(prefix);
+      while (roots.hasMoreElements()) {
+        URI root = roots.nextElement().toURI();
+        if ("jar".equals(root.getScheme())) {
+          registered += loadDirectory(jarFileSystem(root).getPath(prefix));
+        } else {
+          registered += loadDirectory(Paths.get(root));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Invalid classpath prefix: " + prefix, e);
+    }
+    return registered;
+  }
+
+  /**
+   * Loads all definitions found in the directory and its subdirectories. Files are parsed,
+   * validated and compiled in parallel.
+   *
+   * @return number of newly registered definitions
+   */
+  public int loadDirectory(Path directory) {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      files =
+          paths
+              .filter(DslWorkflowRegistry::isDefinitionFile)
+              .sorted()
+              .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // parse, validate and compile in parallel, register in (sorted) file order
+    List<Definition> loaded =
+        files.parallelStream()
+            .map(DslWorkflowRegistry::loadDefinition)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    int registered = 0;
+    for (Definition definition : loaded) {
+      if (register(definition)) {
+        registered++;
+      }
+    }
+    return registered;
+  }
+
+  /**
+   * Loads the directory and keeps watching it (including subdirectories created later) in a
+   * background thread. Definitions with a new id-version are registered as soon as their file is
+   * written, so workers do not need to be restarted to run them.
+   */
+  public synchronized void watch(Path directory) {
+    try {
+      if (watchService == null) {
+        watchService = directory.getFileSystem().newWatchService();
+        Thread watcher = new Thread(this::processWatchEvents, "dsl-registry-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+      }
+      registerWatchedDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    loadDirectory(directory);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+      watchService = null;
+    }
+  }
+
+  private boolean register(Definition definition) {
+    Workflow workflow = definition.getWorkflow();
+    String key = key(workflow.getId(), workflow.getVersion());
+    Definition existing = definitions.putIfAbsent(key, definition);
+    if (existing == null) {
+      logger.info("Registered dsl workflow {}", key);
+      return true;
+    }
+    if (!existing.normalizedSource.equals(definition.normalizedSource)) {
+      logger.warn(
+          "Ignoring changed definition of already registered dsl workflow {}. "
+              + "Registered definitions are immutable, use a new version instead.",
+          key);
+    }
+    return false;
+  }
+
+  private void registerWatchedDirectories(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+        path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+      }
+    }
+  }
+
+  private void processWatchEvents() {
+    try {
+      while (true) {
+        WatchService service = watchService;
+        if (service == null) {
+          return;
+        }
+        WatchKey watchKey = service.take();
+        Path directory = (Path) watchKey.watchable();
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+          if (event.kind() != ENTRY_CREATE && event.kind() != ENTRY_MODIFY) {
+            continue;
+          }
+          Path path = directory.resolve((Path) event.context());
+          try {
+            if (Files.isDirectory(path)) {
+              synchronized (this) {
+                registerWatchedDirectories(path);
+              }
+              loadDirectory(path);
+            } else if (isDefinitionFile(path)) {
+              Definition definition = loadDefinition(path);
+              if (definition != null) {
+                register(definition);
+              }
+            }
+          } catch (Exception e) {
+            logger.error("Unable to load dsl workflow definitions from {}", path, e);
+          }
+        }
+        watchKey.reset();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      // watch service closed
+      logger.debug("Stopped watching dsl workflow definitions", e);
+    }
+  }
+
+  /** Parses, validates and compiles a definition file, returns null if it can't be registered */
+  private static Definition loadDefinition(Path path) {
+    Workflow workflow;
+    try {
+      workflow = Workflow.fromSource(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      logger.debug("Skipping {}, not a dsl workflow definition: {}", path, e.getMessage());
+      return null;
+    }
+    if (workflow == null || workflow.getId() == null || workflow.getStates() == null) {
+      // e.g. workflow data input files living next to the definitions
+      logger.debug("Skipping {}, not a dsl workflow definition", path);
+      return null;
+    }
+
+    List<ValidationError> validationErrors =
+        new WorkflowValidatorImpl().setWorkflow(workflow).validate();
+    if (!validationErrors.isEmpty()) {
+      logger.error(
+          "Invalid dsl workflow definition {}: {}",
+          path,
+          validationErrors.stream().map(ValidationError::getMessage).collect(Collectors.toList()));
+      return null;
+    }
+
+    try {
+      JQFilter.getInstance().precompileExpressions(workflow);
+      return new Definition(workflow, DslExecutionPlan.compile(workflow));
+    } catch (Exception e) {
+      logger.error("Unable to compile dsl workflow definition {}", path, e);
+      return null;
+    }
+  }
+
+  private static boolean isDefinitionFile(Path path) {
+    if (!Files.isRegularFile(path)) {
+      return false;
+    }
+    String fileName = path.getFileName().toString();
+    return fileName.endsWith(".json") || fileName.endsWith(".yml") || fileName.endsWith(".yaml");
+  }
+
+  private static FileSystem jarFileSystem(URI uri) throws IOException {
+    try {
+      return FileSystems.newFileSystem(uri, Collections.emptyMap());
+    } catch (FileSystemAlreadyExistsException e) {
+      return FileSystems.getFileSystem(uri);
+    }
+  }
+}
@@ -21,37 +21,27 @@ package io.temporal.samples.dsl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.serverlessworkflow.api.actions.Action;
-import io.serverlessworkflow.api.branches.Branch;
-import io.serverlessworkflow.api.events.OnEvents;
-import io.serverlessworkflow.api.functions.FunctionDefinition;
-import io.serverlessworkflow.api.functions.SubFlowRef;
-import io.serverlessworkflow.api.interfaces.State;
-import io.serverlessworkflow.api.states.*;
-import io.serverlessworkflow.api.switchconditions.DataCondition;
-import io.serverlessworkflow.utils.WorkflowUtils;
-import io.temporal.activity.ActivityOptions;
 import io.temporal.api.common.v1.WorkflowExecution;
-import io.temporal.api.enums.v1.ParentClosePolicy;
 import io.temporal.common.converter.EncodedValues;
 import io.temporal.samples.dsl.model.ActResult;
 import io.temporal.samples.dsl.model.WorkflowData;
-import io.temporal.samples.dsl.utils.DslWorkflowUtils;
+import io.temporal.samples.dsl.plan.ActionPlan;
+import io.temporal.samples.dsl.plan.DslExecutionPlan;
+import io.temporal.samples.dsl.plan.StatePlan;
 import io.temporal.samples.dsl.utils.JQFilter;
 import io.temporal.workflow.*;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import net.thisptr.jackson.jq.JsonQuery;
 import org.slf4j.Logger;
 
 public class DynamicDslWorkflow implements DynamicWorkflow {
   private static final Logger logger = Workflow.getLogger(DynamicDslWorkflow.class);
 
-  private io.serverlessworkflow.api.Workflow dslWorkflow;
+  private DslExecutionPlan plan;
   private WorkflowData workflowData = new WorkflowData();
-  private List<FunctionDefinition> queryFunctions;
   private Map<String, WorkflowData> signalMap = new HashMap<>();
 
   private ActivityStub activities;
@@ -64,14 +54,14 @@ public class DynamicDslWorkflow implements DynamicWorkflow {
     // Get second input which is set to workflowData
     workflowData.setValue((ObjectNode) args.get(2, JsonNode.class));
 
-    // Using a global shared workflow object here is only allowed because its
+    // Using a global shared execution plan here is only allowed because its
     // assumed that at this point it is immutable and the same across all workflow worker restarts
-    dslWorkflow = DslWorkflowCache.getWorkflow(dslWorkflowId, dslWorkflowVersion);
-
-    // Get all expression type functions to be used for queries
-    queryFunctions =
-        DslWorkflowUtils.getFunctionDefinitionsWithType(
-            dslWorkflow, FunctionDefinition.Type.EXPRESSION);
+    plan = DslWorkflowRegistry.getInstance().getExecutionPlan(dslWorkflowId, dslWorkflowVersion);
+    if (plan == null) {
+      // fails the workflow task, so it is retried until the definition is registered
+      throw new IllegalStateException(
+          "Unknown dsl workflow: " + DslWorkflowRegistry.key(dslWorkflowId, dslWorkflowVersion));
+    }
 
     // Register dynamic signal handler
     // For demo signals input sets the workflowData
@@ -91,9 +81,8 @@ public class DynamicDslWorkflow implements DynamicWorkflow {
     Workflow.registerListener(
         (DynamicQueryHandler)
             (queryType, encodedArgs) -> {
-              if (queryFunctions == null
-                  || DslWorkflowUtils.getFunctionDefinitionWithName(dslWorkflow, queryType)
-                      == null) {
+              JsonQuery query = plan.getQuery(queryType);
+              if (query == null) {
                 logger.warn("Unable to find expression function with name: " + queryType);
                 String queryInput = encodedArgs.get(0, String.class);
                 if (queryInput == null || queryInput.length() < 1) {
@@ -104,327 +93,213 @@ public class DynamicDslWorkflow implements DynamicWorkflow {
                       .evaluateExpression(queryInput, workflowData.getValue());
                 }
               }
-              return JQFilter.getInstance()
-                  .evaluateExpression(
-                      DslWorkflowUtils.getFunctionDefinitionWithName(dslWorkflow, queryType)
-                          .getOperation(),
-                      workflowData.getValue());
+              return JQFilter.getInstance().evaluateExpression(query, workflowData.getValue());
             });
 
-    // Get the activity options that are set from properties in dsl
-    ActivityOptions activityOptions = DslWorkflowUtils.getActivityOptionsFromDsl(dslWorkflow);
     // Create a dynamic activities stub to be used for all actions in dsl
-    activities = Workflow.newUntypedActivityStub(activityOptions);
+    // using the activity options that are set from properties in dsl
+    activities = Workflow.newUntypedActivityStub(plan.getActivityOptions());
 
     // Start going through the dsl workflow states and execute depending on their instructions
-    executeDslWorkflowFrom(WorkflowUtils.getStartingState(dslWorkflow));
+    executeDslWorkflowFrom(plan.getStartingState());
 
     // Return the final workflow data as result
     return workflowData.getValue();
   }
 
   /** Executes workflow according to the dsl control flow logic */
-  private void executeDslWorkflowFrom(State dslWorkflowState) {
-    // This demo supports 3 states: Event State, Operation State and Switch state (data-based
-    // switch)
-    if (dslWorkflowState != null) {
-      // execute the state and return the next workflow state depending on control flow logic in dsl
-      // if next state is null it means that we need to stop execution
-      executeDslWorkflowFrom(executeStateAndReturnNext(dslWorkflowState));
-    } else {
-      // done
-      return;
+  private void executeDslWorkflowFrom(StatePlan dslWorkflowState) {
+    // execute the state and move to the next workflow state depending on control flow logic in dsl
+    // if next state is null it means that we need to stop execution
+    while (dslWorkflowState != null) {
+      dslWorkflowState = plan.getState(executeStateAndReturnNext(dslWorkflowState));
     }
   }
 
   /**
-   * Executes the control flow logic for a dsl workflow state. Demo supports EventState,
-   * OperationState, and SwitchState currently. More can be added.
+   * Executes the control flow logic for a dsl workflow state and returns the name of the next state
+   * to execute. Demo supports EventState, OperationState, SwitchState, SleepState, ForEachState and
+   * ParallelState currently. More can be added.
    */
-  private State executeStateAndReturnNext(State dslWorkflowState) {
-    if (dslWorkflowState instanceof EventState) {
-      EventState eventState = (EventState) dslWorkflowState;
-      // currently this demo supports only the first onEvents
-      if (eventState.getOnEvents() != null && eventState.getOnEvents().size() > 0) {
-
-        if (eventState.getOnEvents().get(0).getActions() == null
-            || eventState.getOnEvents().get(0).getActions().size() < 1) {
-          // no actions..assume we are just waiting on event here
-          Workflow.await(
-              () -> signalMap.containsKey(eventState.getOnEvents().get(0).getEventRefs().get(0)));
-          workflowData = signalMap.get(eventState.getOnEvents().get(0).getEventRefs().get(0));
-        } else {
-          List<Action> eventStateActions = eventState.getOnEvents().get(0).getActions();
-          if (eventState.getOnEvents().get(0).getActionMode() != null
-              && eventState
-                  .getOnEvents()
-                  .get(0)
-                  .getActionMode()
-                  .equals(OnEvents.ActionMode.PARALLEL)) {
-            List<Promise<ActResult>> eventPromises = new ArrayList<>();
-
-            for (Action action : eventStateActions) {
-              eventPromises.add(
-                  activities.executeAsync(
-                      action.getFunctionRef().getRefName(),
-                      ActResult.class,
-                      workflowData.getCustomer()));
-            }
-            // Invoke all activities in parallel. Wait for all to complete
-            Promise.allOf(eventPromises).get();
-
-            for (Promise<ActResult> promise : eventPromises) {
-              workflowData.addResults(promise.get());
-            }
+  private String executeStateAndReturnNext(StatePlan state) {
+    switch (state.getType()) {
+      case EVENT:
+        if (state.getEventRef() != null) {
+          if (state.getActions().isEmpty()) {
+            // no actions..assume we are just waiting on event here
+            Workflow.await(() -> signalMap.containsKey(state.getEventRef()));
+            workflowData = signalMap.get(state.getEventRef());
+          } else if (state.isParallelActions()) {
+            executeActionsInParallel(state.getActions());
           } else {
-            for (Action action : eventStateActions) {
-              if (action.getSleep() != null && action.getSleep().getBefore() != null) {
-                Workflow.sleep(Duration.parse(action.getSleep().getBefore()));
-              }
-              // execute the action as an activity and assign its results to workflowData
-              workflowData.addResults(
-                  activities.execute(
-                      action.getFunctionRef().getRefName(),
-                      ActResult.class,
-                      workflowData.getCustomer()));
-              if (action.getSleep() != null && action.getSleep().getAfter() != null) {
-                Workflow.sleep(Duration.parse(action.getSleep().getAfter()));
-              }
+            for (ActionPlan action : state.getActions()) {
+              executeActivityAction(action);
             }
           }
         }
-      }
-      if (eventState.getTransition() == null || eventState.getTransition().getNextState() == null) {
-        return null;
-      }
-      return WorkflowUtils.getStateWithName(dslWorkflow, eventState.getTransition().getNextState());
-
-    } else if (dslWorkflowState instanceof OperationState) {
-      OperationState operationState = (OperationState) dslWorkflowState;
-
-      if (operationState.getActions() != null && operationState.getActions().size() > 0) {
+        return state.getNextState();
+      case OPERATION:
         // Check if actions should be executed sequentially or parallel
-        if (operationState.getActionMode() != null
-            && operationState.getActionMode().equals(OperationState.ActionMode.PARALLEL)) {
-          List<Promise<ActResult>> actionsPromises = new ArrayList<>();
-
-          for (Action action : operationState.getActions()) {
-            actionsPromises.add(
-                activities.executeAsync(
-                    action.getFunctionRef().getRefName(),
-                    ActResult.class,
-                    workflowData.getCustomer()));
-          }
-          // Invoke all activities in parallel. Wait for all to complete
-          Promise.allOf(actionsPromises).get();
-
-          for (Promise<ActResult> promise : actionsPromises) {
-            workflowData.addResults(promise.get());
-          }
+        if (state.isParallelActions()) {
+          executeActionsInParallel(state.getActions());
         } else {
-          for (Action action : operationState.getActions()) {
-            // added support for subflow (child workflow)
-            if (action.getSubFlowRef() != null) {
-
-              if (action.getSubFlowRef().getInvoke() != null
-                  && action.getSubFlowRef().getInvoke().equals(SubFlowRef.Invoke.ASYNC)) {
-                ChildWorkflowOptions childWorkflowOptions;
-
-                if (action
-                    .getSubFlowRef()
-                    .getOnParentComplete()
-                    .equals(SubFlowRef.OnParentComplete.CONTINUE)) {
-                  childWorkflowOptions =
-                      ChildWorkflowOptions.newBuilder()
-                          .setWorkflowId(action.getSubFlowRef().getWorkflowId())
-                          .setParentClosePolicy(ParentClosePolicy.PARENT_CLOSE_POLICY_ABANDON)
-                          .build();
-                } else {
-                  childWorkflowOptions =
-                      ChildWorkflowOptions.newBuilder()
-                          .setWorkflowId(action.getSubFlowRef().getWorkflowId())
-                          .build();
-                }
-                ChildWorkflowStub childWorkflow =
-                    Workflow.newUntypedChildWorkflowStub(
-                        action.getSubFlowRef().getWorkflowId(), childWorkflowOptions);
-                childWorkflow.executeAsync(
-                    Object.class,
-                    action.getSubFlowRef().getWorkflowId(),
-                    action.getSubFlowRef().getVersion(),
-                    workflowData.getValue());
-                // for async we do not care about result in sample
-                // wait until child starts
-                Promise<WorkflowExecution> childExecution =
-                    Workflow.getWorkflowExecution(childWorkflow);
-                childExecution.get();
-
-              } else {
-                ChildWorkflowStub childWorkflow =
-                    Workflow.newUntypedChildWorkflowStub(
-                        action.getSubFlowRef().getWorkflowId(),
-                        ChildWorkflowOptions.newBuilder()
-                            .setWorkflowId(action.getSubFlowRef().getWorkflowId())
-                            .build());
-
-                workflowData.addResults(
-                    childWorkflow.execute(
-                        Object.class,
-                        action.getSubFlowRef().getWorkflowId(),
-                        action.getSubFlowRef().getVersion(),
-                        workflowData.getValue()));
-              }
-            } else {
-              // check if its a custom function
-              FunctionDefinition functionDefinition =
-                  WorkflowUtils.getFunctionDefinitionsForAction(dslWorkflow, action.getName());
-              if (functionDefinition.getType().equals(FunctionDefinition.Type.CUSTOM)) {
-                // for this example custom function is assumed sending signal via external stub
-                String[] operationParts = functionDefinition.getOperation().split("#", -1);
-                ExternalWorkflowStub externalWorkflowStub =
-                    Workflow.newUntypedExternalWorkflowStub(operationParts[0]);
-                externalWorkflowStub.signal(operationParts[1], workflowData.getValue());
-              } else {
-                if (action.getSleep() != null && action.getSleep().getBefore() != null) {
-                  Workflow.sleep(Duration.parse(action.getSleep().getBefore()));
-                }
-                // execute the action as an activity and assign its results to workflowData
-                workflowData.addResults(
-                    activities.execute(
-                        action.getFunctionRef().getRefName(),
-                        ActResult.class,
-                        workflowData.getCustomer()));
-
-                if (action.getSleep() != null && action.getSleep().getAfter() != null) {
-                  Workflow.sleep(Duration.parse(action.getSleep().getAfter()));
-                }
-              }
-            }
+          for (ActionPlan action : state.getActions()) {
+            executeOperationAction(action);
           }
         }
-      }
-      if (operationState.getTransition() == null
-          || operationState.getTransition().getNextState() == null) {
-        return null;
-      }
-      return WorkflowUtils.getStateWithName(
-          dslWorkflow, operationState.getTransition().getNextState());
-    } else if (dslWorkflowState instanceof SwitchState) {
-      // Demo supports only data based switch
-      SwitchState switchState = (SwitchState) dslWorkflowState;
-      if (switchState.getDataConditions() != null && switchState.getDataConditions().size() > 0) {
+        return state.getNextState();
+      case SWITCH:
         // evaluate each condition to see if its true. If none are true default to defaultCondition
-        for (DataCondition dataCondition : switchState.getDataConditions()) {
+        for (StatePlan.Condition condition : state.getConditions()) {
           if (JQFilter.getInstance()
-              .evaluateBooleanExpression(dataCondition.getCondition(), workflowData.getValue())) {
-            if (dataCondition.getTransition() == null
-                || dataCondition.getTransition().getNextState() == null) {
-              return null;
-            }
-            return WorkflowUtils.getStateWithName(
-                dslWorkflow, dataCondition.getTransition().getNextState());
+              .evaluateBooleanExpression(condition.getQuery(), workflowData.getValue())) {
+            return condition.getNextState();
           }
         }
         // no conditions evaluated to true, use default condition
-        if (switchState.getDefaultCondition().getTransition() == null) {
-          return null;
+        return state.getNextState();
+      case SLEEP:
+        if (state.getSleepDuration() != null) {
+          Workflow.sleep(state.getSleepDuration());
         }
-        return WorkflowUtils.getStateWithName(
-            dslWorkflow, switchState.getDefaultCondition().getTransition().getNextState());
-      } else {
-        // no conditions use the transition/end of default condition
-        if (switchState.getDefaultCondition().getTransition() == null) {
-          return null;
+        return state.getNextState();
+      case FOREACH:
+        List<JsonNode> inputs =
+            JQFilter.getInstance()
+                .evaluateArrayExpression(state.getInputCollection(), workflowData.getValue());
+        // executions started before iterations ran in parallel replay them sequentially
+        if (state.isParallelActions()
+            && Workflow.getVersion("parallelForEach", Workflow.DEFAULT_VERSION, 1) == 1) {
+          executeIterationsInParallel(state, inputs.size());
+        } else {
+          for (JsonNode ignored : inputs) {
+            for (ActionPlan action : state.getActions()) {
+              executeActivityAction(action);
+            }
+          }
         }
-        return WorkflowUtils.getStateWithName(
-            dslWorkflow, switchState.getDefaultCondition().getTransition().getNextState());
-      }
-    } else if (dslWorkflowState instanceof SleepState) {
-      SleepState sleepState = (SleepState) dslWorkflowState;
-      if (sleepState.getDuration() != null) {
-        Workflow.sleep(Duration.parse(sleepState.getDuration()));
-      }
-      if (sleepState.getTransition() == null || sleepState.getTransition().getNextState() == null) {
-        return null;
-      }
-      return WorkflowUtils.getStateWithName(dslWorkflow, sleepState.getTransition().getNextState());
-    } else if (dslWorkflowState instanceof ForEachState) {
-      ForEachState state = (ForEachState) dslWorkflowState;
-      // List<Promise<JsonNode>> actionsPromises = new ArrayList<>();
-
-      List<JsonNode> inputs =
-          JQFilter.getInstance()
-              .evaluateArrayExpression(state.getInputCollection(), workflowData.getValue());
-      // TODO: update to exec all in parallel!
-      for (JsonNode ignored : inputs) {
-        for (Action action : state.getActions()) {
-          if (action.getSleep() != null && action.getSleep().getBefore() != null) {
-            Workflow.sleep(Duration.parse(action.getSleep().getBefore()));
+        return state.getNextState();
+      case PARALLEL:
+        // this is just initial impl, still need to add things like timeouts etc
+        // also this currently assumes the "allof" completion type (default)
+        if (!state.getBranches().isEmpty()) {
+          List<Promise<Void>> branchAllOfPromises = new ArrayList<>();
+
+          for (List<ActionPlan> branch : state.getBranches()) {
+            branchAllOfPromises.add(Async.procedure(this::executeActionsInParallel, branch));
           }
 
-          // execute the action as an activity and assign its results to workflowData
-          workflowData.addResults(
-              activities.execute(
-                  action.getFunctionRef().getRefName(),
-                  ActResult.class,
-                  workflowData.getCustomer()));
-
-          if (action.getSleep() != null && action.getSleep().getAfter() != null) {
-            Workflow.sleep(Duration.parse(action.getSleep().getAfter()));
-          }
+          // execute all branch actions in parallel..wait for all to complete
+          Promise.allOf(branchAllOfPromises).get();
         }
-      }
-
-      if (state.getTransition() == null || state.getTransition().getNextState() == null) {
+        return state.getNextState();
+      default:
+        logger.error("Invalid or unsupported in demo dsl workflow state: " + state.getName());
         return null;
-      }
+    }
+  }
 
-      return WorkflowUtils.getStateWithName(dslWorkflow, state.getTransition().getNextState());
-    } else if (dslWorkflowState instanceof ParallelState) {
-      ParallelState parallelState = (ParallelState) dslWorkflowState;
+  /** Executes the action as an activity and assigns its results to workflowData */
+  private void executeActivityAction(ActionPlan action) {
+    if (action.getSleepBefore() != null) {
+      Workflow.sleep(action.getSleepBefore());
+    }
+    workflowData.addResults(
+        activities.execute(
+            action.getFunctionName(), ActResult.class, workflowData.getCustomer()));
+    if (action.getSleepAfter() != null) {
+      Workflow.sleep(action.getSleepAfter());
+    }
+  }
 
-      // this is just initial impl, still need to add things like timeouts etc
-      // also this currently assumes the "allof" completion type (default)
-      if (parallelState.getBranches() != null && parallelState.getBranches().size() > 0) {
-        List<Promise<Void>> branchAllOfPromises = new ArrayList<>();
+  /**
+   * Executes foreach iterations in waves of at most batchSize concurrent iterations (all at once if
+   * batch size is not set). Actions within a single iteration are executed sequentially. Results
+   * are added in iteration order once a wave completes.
+   */
+  private void executeIterationsInParallel(StatePlan state, int iterations) {
+    int batchSize = state.getBatchSize() > 0 ? state.getBatchSize() : iterations;
+    for (int waveStart = 0; waveStart < iterations; waveStart += batchSize) {
+      int waveEnd = Math.min(waveStart + batchSize, iterations);
+      List<Promise<List<ActResult>>> iterationPromises = new ArrayList<>(waveEnd - waveStart);
+      for (int i = waveStart; i < waveEnd; i++) {
+        iterationPromises.add(Async.function(this::executeIteration, state.getActions()));
+      }
+      // wait for the whole wave to complete before starting the next one
+      Promise.allOf(iterationPromises).get();
 
-        for (Branch branch : parallelState.getBranches()) {
-          branchAllOfPromises.add(Async.procedure(this::processBranchActions, branch));
+      for (Promise<List<ActResult>> promise : iterationPromises) {
+        for (ActResult result : promise.get()) {
+          workflowData.addResults(result);
         }
-
-        // execute all branch actions in parallel..wait for all to complete
-        Promise.allOf(branchAllOfPromises).get();
       }
+    }
+  }
 
-      if (parallelState.getTransition() == null
-          || parallelState.getTransition().getNextState() == null) {
-        return null;
+  private List<ActResult> executeIteration(List<ActionPlan> actions) {
+    List<ActResult> results = new ArrayList<>(actions.size());
+    for (ActionPlan action : actions) {
+      if (action.getSleepBefore() != null) {
+        Workflow.sleep(action.getSleepBefore());
       }
+      results.add(
+          activities.execute(
+              action.getFunctionName(), ActResult.class, workflowData.getCustomer()));
+      if (action.getSleepAfter() != null) {
+        Workflow.sleep(action.getSleepAfter());
+      }
+    }
+    return results;
+  }
 
-      return WorkflowUtils.getStateWithName(
-          dslWorkflow, parallelState.getTransition().getNextState());
-    } else {
-      logger.error("Invalid or unsupported in demo dsl workflow state: " + dslWorkflowState);
-      return null;
+  /** Executes an operation state action which can also be a subflow or a custom function */
+  private void executeOperationAction(ActionPlan action) {
+    switch (action.getKind()) {
+      case SUBFLOW:
+        ChildWorkflowStub childWorkflow =
+            Workflow.newUntypedChildWorkflowStub(
+                action.getSubFlowWorkflowId(), action.getChildWorkflowOptions());
+        if (action.isAsyncSubFlow()) {
+          childWorkflow.executeAsync(
+              Object.class,
+              action.getSubFlowWorkflowId(),
+              action.getSubFlowVersion(),
+              workflowData.getValue());
+          // for async we do not care about result in sample
+          // wait until child starts
+          Promise<WorkflowExecution> childExecution = Workflow.getWorkflowExecution(childWorkflow);
+          childExecution.get();
+        } else {
+          workflowData.addResults(
+              childWorkflow.execute(
+                  Object.class,
+                  action.getSubFlowWorkflowId(),
+                  action.getSubFlowVersion(),
+                  workflowData.getValue()));
+        }
+        break;
+      case SIGNAL:
+        ExternalWorkflowStub externalWorkflowStub =
+            Workflow.newUntypedExternalWorkflowStub(action.getSignalWorkflowId());
+        externalWorkflowStub.signal(action.getSignalName(), workflowData.getValue());
+        break;
+      default:
+        executeActivityAction(action);
     }
   }
 
-  private void processBranchActions(Branch branch) {
-    // here we assume for now that all actions themselves inside
-    // branch are also executed in parallel, just for sample sake
-    // we should check the action mode to see if its sequential or parallel
-    // will add...
-    List<Promise<ActResult>> branchActionPromises = new ArrayList<>();
-    List<Action> branchActions = branch.getActions();
-    for (Action action : branchActions) {
-      branchActionPromises.add(
+  private void executeActionsInParallel(List<ActionPlan> actions) {
+    List<Promise<ActResult>> actionsPromises = new ArrayList<>();
+
+    for (ActionPlan action : actions) {
+      actionsPromises.add(
           activities.executeAsync(
-              action.getFunctionRef().getRefName(), ActResult.class, workflowData.getCustomer()));
+              action.getFunctionName(), ActResult.class, workflowData.getCustomer()));
     }
+    // Invoke all activities in parallel. Wait for all to complete
+    Promise.allOf(actionsPromises).get();
 
-    Promise.allOf(branchActionPromises).get();
-
-    for (Promise<ActResult> promise : branchActionPromises) {
+    for (Promise<ActResult> promise : actionsPromises) {
       workflowData.addResults(promise.get());
     }
   }
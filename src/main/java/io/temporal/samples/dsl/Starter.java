@@ -69,8 +69,9 @@ public class Starter {
   private static void runWorkflow(
       String workflowId, String workflowVersion, String dataInputFileName, boolean doQuery) {
     try {
-      // Get the workflow dsl from cache
-      Workflow dslWorkflow = DslWorkflowCache.getWorkflow(workflowId, workflowVersion);
+      // Get the workflow dsl from registry
+      Workflow dslWorkflow =
+          DslWorkflowRegistry.getInstance().getWorkflow(workflowId, workflowVersion);
 
       assertValid(dslWorkflow);
 
@@ -107,8 +108,10 @@ public class Starter {
 
   private static void runCustomerApprovalWorkflow() {
     try {
-      Workflow applicantWorkflow = DslWorkflowCache.getWorkflow("applicantworkflow", "1.0");
-      Workflow approvalWorkflow = DslWorkflowCache.getWorkflow("approvalworkflow", "1.0");
+      Workflow applicantWorkflow =
+          DslWorkflowRegistry.getInstance().getWorkflow("applicantworkflow", "1.0");
+      Workflow approvalWorkflow =
+          DslWorkflowRegistry.getInstance().getWorkflow("approvalworkflow", "1.0");
 
       assertValid(applicantWorkflow);
       assertValid(approvalWorkflow);
@@ -19,17 +19,38 @@
 
 package io.temporal.samples.dsl;
 
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
+import io.temporal.samples.dsl.utils.JQFilter;
+import io.temporal.samples.metrics.MetricsUtils;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.WorkerFactory;
+import java.nio.file.Paths;
 
 public class Worker {
   private static final WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
   private static final WorkflowClient client = WorkflowClient.newInstance(service);
-  private static final WorkerFactory factory = WorkerFactory.newInstance(client);
   public static final String DEFAULT_TASK_QUEUE_NAME = "dsltaskqueue";
 
   public static void main(String[] args) {
+    // Expose jq expression cache stats (hits, misses, evictions)
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    JQFilter.getInstance().bindTo(registry);
+    HttpServer scrapeEndpoint = MetricsUtils.startPrometheusScrapeEndpoint(registry, 8082);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> scrapeEndpoint.stop(1)));
+
+    // Optionally load and watch a directory of dsl definitions, new definitions (or new versions)
+    // written to it are picked up without restarting the worker
+    if (args.length > 0) {
+      DslWorkflowRegistry.getInstance().watch(Paths.get(args[0]));
+    }
+
+    // Report the workflow cache metrics with the jq cache stats
+    WorkerFactory factory =
+        WorkerFactoryBuilder.newBuilder(client).setMeterRegistry(registry).build();
     io.temporal.worker.Worker worker = factory.newWorker(DEFAULT_TASK_QUEUE_NAME);
     worker.registerWorkflowImplementationTypes(DynamicDslWorkflow.class);
     worker.registerActivitiesImplementations(new DslActivitiesImpl());
@@ -20,6 +20,8 @@
 package io.temporal.samples.dsl.model;
 
 import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -29,6 +31,11 @@ public class WorkflowData {
   private static final ObjectMapper mapper = new ObjectMapper();
   private ObjectNode value;
 
+  // typed view of the customer node and a copy of the node it was converted from, reused while
+  // the customer node is equal to the copy
+  private JsonNode customerNode;
+  private Customer customer;
+
   public WorkflowData() {
     value = mapper.createObjectNode();
   }
@@ -46,13 +53,27 @@ public class WorkflowData {
     }
   }
 
+  /**
+   * Returns the typed view of the "customer" node. It is converted directly from the tree and
+   * cached until the customer node changes, whether it is replaced or edited in place through
+   * {@link #getValue()}. The returned instance is shared and should not be modified.
+   */
   public Customer getCustomer() {
-    try {
-      return mapper.readValue(value.get("customer").toPrettyString(), Customer.class);
-    } catch (Exception e) {
-      e.printStackTrace();
+    JsonNode node = value.get("customer");
+    if (node == null) {
       return null;
     }
+    // comparing the trees is much cheaper than converting them again
+    if (!node.equals(customerNode)) {
+      try {
+        customer = mapper.treeToValue(node, Customer.class);
+        customerNode = node.deepCopy();
+      } catch (JsonProcessingException e) {
+        e.printStackTrace();
+        return null;
+      }
+    }
+    return customer;
   }
 
   public ObjectNode getValue() {
@@ -61,10 +82,22 @@ public class WorkflowData {
 
   public void setValue(ObjectNode value) {
     this.value = value;
+    this.customerNode = null;
+    this.customer = null;
   }
 
+  /** Appends a result to the "results" array, creating the array if it does not exist yet */
   public void addResults(Object result) {
-    ((ArrayNode) this.value.get("results")).add(mapper.valueToTree(result));
+    ArrayNode results = value.withArray("results");
+    if (result instanceof ActResult) {
+      // build the node directly instead of converting the whole object to a tree
+      ActResult actResult = (ActResult) result;
+      results.addObject().put("type", actResult.getType()).put("result", actResult.getResult());
+    } else if (result instanceof JsonNode) {
+      results.add((JsonNode) result);
+    } else {
+      results.add(mapper.valueToTree(result));
+    }
   }
 
   public String valueToString() {
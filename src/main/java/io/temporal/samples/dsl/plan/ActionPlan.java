@@ -0,0 +1,178 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl.plan;
+
+import io.serverlessworkflow.api.actions.Action;
+import io.serverlessworkflow.api.functions.FunctionDefinition;
+import io.serverlessworkflow.api.functions.SubFlowRef;
+import io.temporal.api.enums.v1.ParentClosePolicy;
+import io.temporal.workflow.ChildWorkflowOptions;
+import java.time.Duration;
+import java.util.Map;
+
+/** Dsl action with its function reference, sleeps and child workflow options resolved upfront */
+public class ActionPlan {
+
+  public enum Kind {
+    /** invoke the referenced function as an activity */
+    ACTIVITY,
+    /** invoke a subflow as a child workflow */
+    SUBFLOW,
+    /** custom function, for this sample it signals an external workflow */
+    SIGNAL
+  }
+
+  private final Kind kind;
+  private final String functionName;
+  private final Duration sleepBefore;
+  private final Duration sleepAfter;
+  private final String subFlowWorkflowId;
+  private final String subFlowVersion;
+  private final boolean asyncSubFlow;
+  private final ChildWorkflowOptions childWorkflowOptions;
+  private final String signalWorkflowId;
+  private final String signalName;
+
+  private ActionPlan(
+      Kind kind,
+      String functionName,
+      Duration sleepBefore,
+      Duration sleepAfter,
+      String subFlowWorkflowId,
+      String subFlowVersion,
+      boolean asyncSubFlow,
+      ChildWorkflowOptions childWorkflowOptions,
+      String signalWorkflowId,
+      String signalName) {
+    this.kind = kind;
+    this.functionName = functionName;
+    this.sleepBefore = sleepBefore;
+    this.sleepAfter = sleepAfter;
+    this.subFlowWorkflowId = subFlowWorkflowId;
+    this.subFlowVersion = subFlowVersion;
+    this.asyncSubFlow = asyncSubFlow;
+    this.childWorkflowOptions = childWorkflowOptions;
+    this.signalWorkflowId = signalWorkflowId;
+    this.signalName = signalName;
+  }
+
+  static ActionPlan compile(Action action, Map<String, FunctionDefinition> functions) {
+    Duration sleepBefore = null;
+    Duration sleepAfter = null;
+    if (action.getSleep() != null) {
+      if (action.getSleep().getBefore() != null) {
+        sleepBefore = Duration.parse(action.getSleep().getBefore());
+      }
+      if (action.getSleep().getAfter() != null) {
+        sleepAfter = Duration.parse(action.getSleep().getAfter());
+      }
+    }
+
+    SubFlowRef subFlowRef = action.getSubFlowRef();
+    if (subFlowRef != null) {
+      boolean async =
+          subFlowRef.getInvoke() != null && subFlowRef.getInvoke().equals(SubFlowRef.Invoke.ASYNC);
+      ChildWorkflowOptions.Builder childWorkflowOptions =
+          ChildWorkflowOptions.newBuilder().setWorkflowId(subFlowRef.getWorkflowId());
+      if (async
+          && subFlowRef.getOnParentComplete() != null
+          && subFlowRef.getOnParentComplete().equals(SubFlowRef.OnParentComplete.CONTINUE)) {
+        childWorkflowOptions.setParentClosePolicy(ParentClosePolicy.PARENT_CLOSE_POLICY_ABANDON);
+      }
+      return new ActionPlan(
+          Kind.SUBFLOW,
+          null,
+          sleepBefore,
+          sleepAfter,
+          subFlowRef.getWorkflowId(),
+          subFlowRef.getVersion(),
+          async,
+          childWorkflowOptions.build(),
+          null,
+          null);
+    }
+
+    if (action.getFunctionRef() == null) {
+      throw new IllegalArgumentException(
+          "Action " + action.getName() + " has neither a function nor a subflow reference");
+    }
+    String functionName = action.getFunctionRef().getRefName();
+    FunctionDefinition functionDefinition = functions.get(functionName);
+    if (functionDefinition != null
+        && functionDefinition.getType().equals(FunctionDefinition.Type.CUSTOM)) {
+      // for this example custom function is assumed sending signal via external stub
+      String[] operationParts = functionDefinition.getOperation().split("#", -1);
+      return new ActionPlan(
+          Kind.SIGNAL,
+          functionName,
+          sleepBefore,
+          sleepAfter,
+          null,
+          null,
+          false,
+          null,
+          operationParts[0],
+          operationParts[1]);
+    }
+    return new ActionPlan(
+        Kind.ACTIVITY, functionName, sleepBefore, sleepAfter, null, null, false, null, null, null);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /** Name of the referenced function, used as the activity type */
+  public String getFunctionName() {
+    return functionName;
+  }
+
+  public Duration getSleepBefore() {
+    return sleepBefore;
+  }
+
+  public Duration getSleepAfter() {
+    return sleepAfter;
+  }
+
+  public String getSubFlowWorkflowId() {
+    return subFlowWorkflowId;
+  }
+
+  public String getSubFlowVersion() {
+    return subFlowVersion;
+  }
+
+  public boolean isAsyncSubFlow() {
+    return asyncSubFlow;
+  }
+
+  public ChildWorkflowOptions getChildWorkflowOptions() {
+    return childWorkflowOptions;
+  }
+
+  public String getSignalWorkflowId() {
+    return signalWorkflowId;
+  }
+
+  public String getSignalName() {
+    return signalName;
+  }
+}
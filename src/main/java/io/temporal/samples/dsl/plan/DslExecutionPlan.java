@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl.plan;
+
+import io.serverlessworkflow.api.Workflow;
+import io.serverlessworkflow.api.functions.FunctionDefinition;
+import io.serverlessworkflow.api.interfaces.State;
+import io.serverlessworkflow.utils.WorkflowUtils;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.samples.dsl.utils.DslWorkflowUtils;
+import io.temporal.samples.dsl.utils.JQFilter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import net.thisptr.jackson.jq.JsonQuery;
+
+/**
+ * Immutable, indexed form of a dsl workflow. It is compiled once when the dsl is loaded so that
+ * workflow executions (and replays) only do map lookups instead of walking the dsl object model.
+ */
+public class DslExecutionPlan {
+
+  private final Workflow dslWorkflow;
+  private final Map<String, StatePlan> states;
+  private final StatePlan startingState;
+  private final Map<String, JsonQuery> queries;
+  private final ActivityOptions activityOptions;
+
+  private DslExecutionPlan(
+      Workflow dslWorkflow,
+      Map<String, StatePlan> states,
+      StatePlan startingState,
+      Map<String, JsonQuery> queries,
+      ActivityOptions activityOptions) {
+    this.dslWorkflow = dslWorkflow;
+    this.states = Collections.unmodifiableMap(states);
+    this.startingState = startingState;
+    this.queries = Collections.unmodifiableMap(queries);
+    this.activityOptions = activityOptions;
+  }
+
+  public static DslExecutionPlan compile(Workflow dslWorkflow) {
+    Map<String, FunctionDefinition> functions = new HashMap<>();
+    Map<String, JsonQuery> queries = new HashMap<>();
+    if (WorkflowUtils.hasFunctionDefs(dslWorkflow)) {
+      for (FunctionDefinition functionDefinition : dslWorkflow.getFunctions().getFunctionDefs()) {
+        functions.put(functionDefinition.getName(), functionDefinition);
+        // we use expression type functions in workflow def as query definitions
+        if (functionDefinition.getType().equals(FunctionDefinition.Type.EXPRESSION)) {
+          queries.put(
+              functionDefinition.getName(),
+              JQFilter.getInstance().compileExpression(functionDefinition.getOperation()));
+        }
+      }
+    }
+
+    Map<String, StatePlan> states = new HashMap<>();
+    for (State state : dslWorkflow.getStates()) {
+      states.put(state.getName(), StatePlan.compile(state, functions));
+    }
+    for (StatePlan state : states.values()) {
+      assertKnownState(dslWorkflow, states, state.getNextState());
+      for (StatePlan.Condition condition : state.getConditions()) {
+        assertKnownState(dslWorkflow, states, condition.getNextState());
+      }
+    }
+    StatePlan startingState = states.get(WorkflowUtils.getStartingState(dslWorkflow).getName());
+
+    return new DslExecutionPlan(
+        dslWorkflow,
+        states,
+        startingState,
+        queries,
+        DslWorkflowUtils.getActivityOptionsFromDsl(dslWorkflow));
+  }
+
+  private static void assertKnownState(
+      Workflow dslWorkflow, Map<String, StatePlan> states, String name) {
+    if (name != null && !states.containsKey(name)) {
+      throw new IllegalArgumentException(
+          "Unknown transition state " + name + " in dsl workflow " + dslWorkflow.getId());
+    }
+  }
+
+  public Workflow getDslWorkflow() {
+    return dslWorkflow;
+  }
+
+  public StatePlan getStartingState() {
+    return startingState;
+  }
+
+  /** Returns the state with the given name, or null if the name is null (workflow end) */
+  public StatePlan getState(String name) {
+    return name == null ? null : states.get(name);
+  }
+
+  /** Returns the compiled expression function with the given name, or null if there is none */
+  public JsonQuery getQuery(String name) {
+    return queries.get(name);
+  }
+
+  public ActivityOptions getActivityOptions() {
+    return activityOptions;
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl.plan;
+
+import io.serverlessworkflow.api.actions.Action;
+import io.serverlessworkflow.api.branches.Branch;
+import io.serverlessworkflow.api.events.OnEvents;
+import io.serverlessworkflow.api.functions.FunctionDefinition;
+import io.serverlessworkflow.api.interfaces.State;
+import io.serverlessworkflow.api.states.EventState;
+import io.serverlessworkflow.api.states.ForEachState;
+import io.serverlessworkflow.api.states.OperationState;
+import io.serverlessworkflow.api.states.ParallelState;
+import io.serverlessworkflow.api.states.SleepState;
+import io.serverlessworkflow.api.states.SwitchState;
+import io.serverlessworkflow.api.switchconditions.DataCondition;
+import io.serverlessworkflow.api.transitions.Transition;
+import io.temporal.samples.dsl.utils.JQFilter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import net.thisptr.jackson.jq.JsonQuery;
+
+/**
+ * Dsl workflow state reduced to what the interpreter needs: its type, resolved actions, parsed
+ * durations, compiled conditions and the name of the next state (null when the state ends the
+ * workflow).
+ */
+public class StatePlan {
+
+  public enum Type {
+    EVENT,
+    OPERATION,
+    SWITCH,
+    SLEEP,
+    FOREACH,
+    PARALLEL,
+    UNSUPPORTED
+  }
+
+  /** Compiled data condition of a switch state */
+  public static class Condition {
+    private final JsonQuery query;
+    private final String nextState;
+
+    Condition(JsonQuery query, String nextState) {
+      this.query = query;
+      this.nextState = nextState;
+    }
+
+    public JsonQuery getQuery() {
+      return query;
+    }
+
+    public String getNextState() {
+      return nextState;
+    }
+  }
+
+  private final String name;
+  private final Type type;
+  private final String nextState;
+  private final String eventRef;
+  private final List<ActionPlan> actions;
+  private final boolean parallelActions;
+  private final List<Condition> conditions;
+  private final Duration sleepDuration;
+  private final JsonQuery inputCollection;
+  private final int batchSize;
+  private final List<List<ActionPlan>> branches;
+
+  private StatePlan(
+      String name,
+      Type type,
+      String nextState,
+      String eventRef,
+      List<ActionPlan> actions,
+      boolean parallelActions,
+      List<Condition> conditions,
+      Duration sleepDuration,
+      JsonQuery inputCollection,
+      int batchSize,
+      List<List<ActionPlan>> branches) {
+    this.name = name;
+    this.type = type;
+    this.nextState = nextState;
+    this.eventRef = eventRef;
+    this.actions = Collections.unmodifiableList(actions);
+    this.parallelActions = parallelActions;
+    this.conditions = Collections.unmodifiableList(conditions);
+    this.sleepDuration = sleepDuration;
+    this.inputCollection = inputCollection;
+    this.batchSize = batchSize;
+    this.branches = Collections.unmodifiableList(branches);
+  }
+
+  static StatePlan compile(State state, Map<String, FunctionDefinition> functions) {
+    if (state instanceof EventState) {
+      EventState eventState = (EventState) state;
+      String eventRef = null;
+      List<ActionPlan> actions = Collections.emptyList();
+      boolean parallel = false;
+      // currently this demo supports only the first onEvents
+      if (eventState.getOnEvents() != null && eventState.getOnEvents().size() > 0) {
+        OnEvents onEvents = eventState.getOnEvents().get(0);
+        eventRef = onEvents.getEventRefs().get(0);
+        actions = compileActions(onEvents.getActions(), functions);
+        parallel =
+            onEvents.getActionMode() != null
+                && onEvents.getActionMode().equals(OnEvents.ActionMode.PARALLEL);
+      }
+      return new StatePlan(
+          state.getName(),
+          Type.EVENT,
+          nextState(eventState.getTransition()),
+          eventRef,
+          actions,
+          parallel,
+          Collections.emptyList(),
+          null,
+          null,
+          0,
+          Collections.emptyList());
+    } else if (state instanceof OperationState) {
+      OperationState operationState = (OperationState) state;
+      return new StatePlan(
+          state.getName(),
+          Type.OPERATION,
+          nextState(operationState.getTransition()),
+          null,
+          compileActions(operationState.getActions(), functions),
+          operationState.getActionMode() != null
+              && operationState.getActionMode().equals(OperationState.ActionMode.PARALLEL),
+          Collections.emptyList(),
+          null,
+          null,
+          0,
+          Collections.emptyList());
+    } else if (state instanceof SwitchState) {
+      // Demo supports only data based switch
+      SwitchState switchState = (SwitchState) state;
+      List<Condition> conditions = new ArrayList<>();
+      if (switchState.getDataConditions() != null) {
+        for (DataCondition dataCondition : switchState.getDataConditions()) {
+          conditions.add(
+              new Condition(
+                  JQFilter.getInstance().compileExpression(dataCondition.getCondition()),
+                  nextState(dataCondition.getTransition())));
+        }
+      }
+      return new StatePlan(
+          state.getName(),
+          Type.SWITCH,
+          switchState.getDefaultCondition() == null
+              ? null
+              : nextState(switchState.getDefaultCondition().getTransition()),
+          null,
+          Collections.emptyList(),
+          false,
+          conditions,
+          null,
+          null,
+          0,
+          Collections.emptyList());
+    } else if (state instanceof SleepState) {
+      SleepState sleepState = (SleepState) state;
+      return new StatePlan(
+          state.getName(),
+          Type.SLEEP,
+          nextState(sleepState.getTransition()),
+          null,
+          Collections.emptyList(),
+          false,
+          Collections.emptyList(),
+          sleepState.getDuration() == null ? null : Duration.parse(sleepState.getDuration()),
+          null,
+          0,
+          Collections.emptyList());
+    } else if (state instanceof ForEachState) {
+      ForEachState forEachState = (ForEachState) state;
+      // iterations run in parallel unless mode is explicitly set to sequential
+      boolean parallel =
+          forEachState.getMode() == null
+              || !forEachState.getMode().equals(ForEachState.Mode.SEQUENTIAL);
+      return new StatePlan(
+          state.getName(),
+          Type.FOREACH,
+          nextState(forEachState.getTransition()),
+          null,
+          compileActions(forEachState.getActions(), functions),
+          parallel,
+          Collections.emptyList(),
+          null,
+          JQFilter.getInstance().compileExpression(forEachState.getInputCollection()),
+          parseBatchSize(forEachState),
+          Collections.emptyList());
+    } else if (state instanceof ParallelState) {
+      ParallelState parallelState = (ParallelState) state;
+      List<List<ActionPlan>> branches = new ArrayList<>();
+      if (parallelState.getBranches() != null) {
+        for (Branch branch : parallelState.getBranches()) {
+          branches.add(Collections.unmodifiableList(compileActions(branch.getActions(), functions)));
+        }
+      }
+      return new StatePlan(
+          state.getName(),
+          Type.PARALLEL,
+          nextState(parallelState.getTransition()),
+          null,
+          Collections.emptyList(),
+          true,
+          Collections.emptyList(),
+          null,
+          null,
+          0,
+          branches);
+    } else {
+      return new StatePlan(
+          state.getName(),
+          Type.UNSUPPORTED,
+          null,
+          null,
+          Collections.emptyList(),
+          false,
+          Collections.emptyList(),
+          null,
+          null,
+          0,
+          Collections.emptyList());
+    }
+  }
+
+  private static List<ActionPlan> compileActions(
+      List<Action> actions, Map<String, FunctionDefinition> functions) {
+    if (actions == null) {
+      return Collections.emptyList();
+    }
+    List<ActionPlan> actionPlans = new ArrayList<>(actions.size());
+    for (Action action : actions) {
+      actionPlans.add(ActionPlan.compile(action, functions));
+    }
+    return actionPlans;
+  }
+
+  private static int parseBatchSize(ForEachState forEachState) {
+    Object batchSize = forEachState.getBatchSize();
+    if (batchSize == null || String.valueOf(batchSize).trim().isEmpty()) {
+      return 0;
+    }
+    try {
+      return Math.max(0, Integer.parseInt(String.valueOf(batchSize).trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Invalid batchSize " + batchSize + " in foreach state " + forEachState.getName());
+    }
+  }
+
+  private static String nextState(Transition transition) {
+    return transition == null ? null : transition.getNextState();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /** Name of the state to transition to, null if this state ends the workflow */
+  public String getNextState() {
+    return nextState;
+  }
+
+  /** Event the state waits for, only set for event states */
+  public String getEventRef() {
+    return eventRef;
+  }
+
+  public List<ActionPlan> getActions() {
+    return actions;
+  }
+
+  /**
+   * Actions are executed in parallel for operation and event states in parallel action mode, and
+   * for each iteration of foreach states in parallel mode
+   */
+  public boolean isParallelActions() {
+    return parallelActions;
+  }
+
+  /** Data conditions of a switch state in evaluation order, next state is the default one */
+  public List<Condition> getConditions() {
+    return conditions;
+  }
+
+  public Duration getSleepDuration() {
+    return sleepDuration;
+  }
+
+  public JsonQuery getInputCollection() {
+    return inputCollection;
+  }
+
+  /** Max number of foreach iterations executed at the same time, 0 means no limit */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public List<List<ActionPlan>> getBranches() {
+    return branches;
+  }
+}
@@ -20,22 +20,45 @@
 package io.temporal.samples.dsl.utils;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import io.serverlessworkflow.api.Workflow;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import net.thisptr.jackson.jq.BuiltinFunctionLoader;
 import net.thisptr.jackson.jq.JsonQuery;
 import net.thisptr.jackson.jq.Scope;
 import net.thisptr.jackson.jq.Versions;
 import net.thisptr.jackson.jq.module.loaders.BuiltinModuleLoader;
 
-public class JQFilter {
+public class JQFilter implements MeterBinder {
 
+  /** Max number of compiled expressions kept around, least recently used ones are evicted first */
+  public static final long MAX_CACHED_EXPRESSIONS = 1000;
+
+  private static final String EXPRESSION_CACHE_NAME = "dsl.jq.expressions";
   private static final Scope rootScope = Scope.newEmptyScope();
-  private static Map<String, JsonQuery> expressionMap = new HashMap<>();
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  // Compiled queries are immutable so they can be shared across all workflow threads
+  private final LoadingCache<String, JsonQuery> expressionCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_EXPRESSIONS)
+          .recordStats()
+          .build(
+              new CacheLoader<String, JsonQuery>() {
+                @Override
+                public JsonQuery load(String expression) throws Exception {
+                  return JsonQuery.compile(expression, Versions.JQ_1_6);
+                }
+              });
 
   private static volatile JQFilter instance;
 
@@ -55,20 +78,49 @@ public class JQFilter {
     rootScope.setModuleLoader(BuiltinModuleLoader.getInstance());
   }
 
+  /** Exposes expression cache hits, misses, evictions and size through the given registry */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    GuavaCacheMetrics.monitor(registry, expressionCache, EXPRESSION_CACHE_NAME);
+  }
+
+  /**
+   * Compiles all "${...}" expressions found in the dsl workflow definition so that workflow
+   * executions do not pay the compile cost. Meant to be called when the definition is loaded.
+   *
+   * @return number of expressions found in the definition
+   */
+  public int precompileExpressions(Workflow dslWorkflow) {
+    try {
+      List<String> expressions = new ArrayList<>();
+      collectExpressions(mapper.readTree(Workflow.toJson(dslWorkflow)), expressions);
+      for (String expression : expressions) {
+        compileExpression(expression);
+      }
+      return expressions.size();
+    } catch (Exception e) {
+      throw new IllegalArgumentException(
+          "Invalid expression in dsl workflow " + dslWorkflow.getId() + ": " + e.getMessage(), e);
+    }
+  }
+
+  /** Returns the compiled (and cached) query for a "${...}" expression */
+  public JsonQuery compileExpression(String expression) {
+    return expressionCache.getUnchecked(toEvalExpression(expression));
+  }
+
   public JsonNode evaluateExpression(String expression, JsonNode data) {
+    return evaluateExpression(compileExpression(expression), data);
+  }
+
+  public JsonNode evaluateExpression(JsonQuery query, JsonNode data) {
 
     try {
 
       final Scope childScope = Scope.newChildScope(rootScope);
       final List<JsonNode> result = new ArrayList<>();
 
-      final String toEvalExpression = expression.replace("${", "").replaceAll("}$", "");
-
-      if (!expressionMap.containsKey(toEvalExpression)) {
-        expressionMap.put(toEvalExpression, JsonQuery.compile(toEvalExpression, Versions.JQ_1_6));
-      }
-
-      expressionMap.get(toEvalExpression).apply(childScope, data, result::add);
+      query.apply(childScope, data, result::add);
 
       return result.get(0);
     } catch (Exception e) {
@@ -77,15 +129,38 @@ public class JQFilter {
   }
 
   public boolean evaluateBooleanExpression(String expression, JsonNode data) {
-    BooleanNode result = (BooleanNode) evaluateExpression(expression, data);
+    return evaluateBooleanExpression(compileExpression(expression), data);
+  }
+
+  public boolean evaluateBooleanExpression(JsonQuery query, JsonNode data) {
+    BooleanNode result = (BooleanNode) evaluateExpression(query, data);
     return result.booleanValue();
   }
 
   public List<JsonNode> evaluateArrayExpression(String expression, JsonNode data) {
-    ArrayNode result = (ArrayNode) evaluateExpression(expression, data);
+    return evaluateArrayExpression(compileExpression(expression), data);
+  }
+
+  public List<JsonNode> evaluateArrayExpression(JsonQuery query, JsonNode data) {
+    ArrayNode result = (ArrayNode) evaluateExpression(query, data);
     List<JsonNode> resultList = new ArrayList<>(result.size());
     result.forEach(jsonNode -> resultList.add(jsonNode));
 
     return resultList;
   }
+
+  private static String toEvalExpression(String expression) {
+    return expression.replace("${", "").replaceAll("}$", "");
+  }
+
+  private static void collectExpressions(JsonNode node, List<String> expressions) {
+    if (node.isTextual()) {
+      String text = node.asText().trim();
+      if (text.startsWith("${") && text.endsWith("}")) {
+        expressions.add(text);
+      }
+    } else {
+      node.forEach(child -> collectExpressions(child, expressions));
+    }
+  }
 }
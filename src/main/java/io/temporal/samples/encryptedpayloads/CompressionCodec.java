@@ -0,0 +1,223 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import com.github.luben.zstd.Zstd;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.payload.codec.PayloadCodecException;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import net.jpountz.lz4.LZ4Factory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compresses payloads that are larger than a threshold. Encrypted data doesn't compress, so this
+ * codec has to run before {@link CryptCodec} when both are used. Payloads that don't get smaller
+ * are left as they are.
+ */
+class CompressionCodec implements PayloadCodec {
+  static final ByteString METADATA_ENCODING =
+      ByteString.copyFrom("binary/compressed", StandardCharsets.UTF_8);
+
+  static final String METADATA_COMPRESSION_ALGORITHM_KEY = "compression-algorithm";
+  static final String METADATA_COMPRESSION_ORIGINAL_SIZE_KEY = "compression-original-size";
+
+  /** Payloads smaller than this are not worth compressing. */
+  static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+  /**
+   * Upper bound of the original size recorded in a payload. The output buffer is allocated up front
+   * from that size, which is read back from the history and so is not trusted.
+   */
+  static final int MAX_ORIGINAL_SIZE_BYTES = 64 * 1024 * 1024;
+
+  enum Algorithm {
+    DEFLATE {
+      @Override
+      byte[] compress(byte[] data) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          output.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return output.toByteArray();
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int originalSize) throws DataFormatException {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(data);
+        byte[] output = new byte[originalSize];
+        int size = 0;
+        while (size < originalSize && !inflater.finished()) {
+          int inflated = inflater.inflate(output, size, originalSize - size);
+          if (inflated == 0 && inflater.needsInput()) {
+            throw new DataFormatException("Truncated deflate data");
+          }
+          size += inflated;
+        }
+        if (size != originalSize || !inflater.finished()) {
+          throw new DataFormatException(
+              "Inflated " + size + " bytes, expected " + originalSize + " bytes");
+        }
+        return output;
+      }
+    },
+    ZSTD {
+      @Override
+      byte[] compress(byte[] data) {
+        return Zstd.compress(data, ZSTD_LEVEL);
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int originalSize) throws DataFormatException {
+        // returns a shorter array, not an error, when the frame holds fewer bytes
+        byte[] output = Zstd.decompress(data, originalSize);
+        if (output.length != originalSize) {
+          throw new DataFormatException(
+              "Decompressed " + output.length + " bytes, expected " + originalSize + " bytes");
+        }
+        return output;
+      }
+    },
+    LZ4 {
+      @Override
+      byte[] compress(byte[] data) {
+        return LZ4_FACTORY.fastCompressor().compress(data);
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int originalSize) throws DataFormatException {
+        // the safe decompressor checks the input, which is read back from the history
+        byte[] output = LZ4_FACTORY.safeDecompressor().decompress(data, originalSize);
+        if (output.length != originalSize) {
+          throw new DataFormatException(
+              "Decompressed " + output.length + " bytes, expected " + originalSize + " bytes");
+        }
+        return output;
+      }
+    };
+
+    abstract byte[] compress(byte[] data);
+
+    abstract byte[] decompress(byte[] data, int originalSize) throws Exception;
+  }
+
+  private static final int ZSTD_LEVEL = 3;
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+  // Deflater and Inflater hold native buffers that are expensive to allocate, reuse per thread.
+  private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+  private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+  private final Algorithm algorithm;
+  private final int thresholdBytes;
+  private final ByteString algorithmName;
+
+  CompressionCodec() {
+    this(Algorithm.ZSTD, DEFAULT_THRESHOLD_BYTES);
+  }
+
+  /**
+   * @param algorithm compression algorithm used for encoding. Decoding supports all algorithms.
+   * @param thresholdBytes minimal serialized payload size to compress
+   */
+  CompressionCodec(Algorithm algorithm, int thresholdBytes) {
+    this.algorithm = algorithm;
+    this.thresholdBytes = thresholdBytes;
+    this.algorithmName = ByteString.copyFromUtf8(algorithm.name());
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> encode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::encodePayload).collect(Collectors.toList());
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> decode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::decodePayload).collect(Collectors.toList());
+  }
+
+  private Payload encodePayload(Payload payload) {
+    if (payload.getSerializedSize() < thresholdBytes) {
+      return payload;
+    }
+    byte[] plainData = payload.toByteArray();
+    byte[] compressedData;
+    try {
+      compressedData = algorithm.compress(plainData);
+    } catch (Exception e) {
+      throw new PayloadCodecException(e);
+    }
+    if (compressedData.length >= plainData.length) {
+      return payload;
+    }
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
+        .putMetadata(METADATA_COMPRESSION_ALGORITHM_KEY, algorithmName)
+        .putMetadata(
+            METADATA_COMPRESSION_ORIGINAL_SIZE_KEY,
+            ByteString.copyFromUtf8(Integer.toString(plainData.length)))
+        .setData(UnsafeByteOperations.unsafeWrap(compressedData))
+        .build();
+  }
+
+  private Payload decodePayload(Payload payload) {
+    if (!METADATA_ENCODING.equals(
+        payload.getMetadataOrDefault(EncodingKeys.METADATA_ENCODING_KEY, null))) {
+      return payload;
+    }
+    try {
+      Algorithm payloadAlgorithm =
+          Algorithm.valueOf(
+              payload
+                  .getMetadataOrThrow(METADATA_COMPRESSION_ALGORITHM_KEY)
+                  .toString(StandardCharsets.UTF_8));
+      int originalSize =
+          Integer.parseInt(
+              payload
+                  .getMetadataOrThrow(METADATA_COMPRESSION_ORIGINAL_SIZE_KEY)
+                  .toString(StandardCharsets.UTF_8));
+      if (originalSize < 0 || originalSize > MAX_ORIGINAL_SIZE_BYTES) {
+        throw new DataFormatException("Invalid original size " + originalSize);
+      }
+      return Payload.parseFrom(
+          payloadAlgorithm.decompress(payload.getData().toByteArray(), originalSize));
+    } catch (Exception e) {
+      throw new PayloadCodecException(e);
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package io.temporal.samples.encryptedpayloads;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.temporal.api.common.v1.Payload;
 import io.temporal.common.converter.DataConverterException;
 import io.temporal.common.converter.EncodingKeys;
@@ -28,8 +29,18 @@ import io.temporal.payload.codec.PayloadCodecException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -53,25 +64,111 @@ class CryptCodec implements PayloadCodec {
   private static final int GCM_TAG_LENGTH_BIT = 128;
   private static final Charset UTF_8 = StandardCharsets.UTF_8;
 
+  // Cipher instances are not thread safe and expensive to look up, so each thread keeps its own.
+  // They are initialized with the key and a fresh nonce before every use.
+  private static final ThreadLocal<Cipher> CIPHERS =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return Cipher.getInstance(CIPHER);
+            } catch (GeneralSecurityException e) {
+              throw new IllegalStateException("Cipher " + CIPHER + " is not available", e);
+            }
+          });
+
+  // SecureRandom is thread safe, seeding a new instance per payload is wasted work.
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /**
+   * Payload lists with a total size below this are encoded on the calling thread. See
+   * CryptCodecParallelBenchmark for where parallel encoding starts to pay off.
+   */
+  static final long DEFAULT_PARALLEL_THRESHOLD_BYTES = 256 * 1024;
+
+  private final KeyProvider keyProvider;
+  private final long parallelThresholdBytes;
+  private final ExecutorService executor;
+
+  CryptCodec() {
+    this(new HardCodedKeyProvider());
+  }
+
+  CryptCodec(KeyProvider keyProvider) {
+    this(keyProvider, DEFAULT_PARALLEL_THRESHOLD_BYTES, SharedExecutor.INSTANCE);
+  }
+
+  /**
+   * @param keyProvider supplies the active key for encoding and previous keys for decoding
+   * @param parallelThresholdBytes minimal total serialized size of a payload list to encode or
+   *     decode its payloads concurrently
+   * @param executor executor the payloads of large lists are offloaded to
+   */
+  CryptCodec(KeyProvider keyProvider, long parallelThresholdBytes, ExecutorService executor) {
+    this.keyProvider = keyProvider;
+    this.parallelThresholdBytes = parallelThresholdBytes;
+    this.executor = executor;
+  }
+
   @NotNull
   @Override
   public List<Payload> encode(@NotNull List<Payload> payloads) {
-    return payloads.stream().map(this::encodePayload).collect(Collectors.toList());
+    return map(payloads, this::encodePayload);
   }
 
   @NotNull
   @Override
   public List<Payload> decode(@NotNull List<Payload> payloads) {
-    return payloads.stream().map(this::decodePayload).collect(Collectors.toList());
+    return map(payloads, this::decodePayload);
+  }
+
+  /**
+   * Applies the codec to each payload. Small lists stay on the calling thread; for large lists all
+   * but the first payload are offloaded to the executor while the calling thread handles the first.
+   */
+  private List<Payload> map(List<Payload> payloads, Function<Payload, Payload> codec) {
+    if (payloads.size() < 2 || totalSerializedSize(payloads) < parallelThresholdBytes) {
+      return payloads.stream().map(codec).collect(Collectors.toList());
+    }
+    List<Future<Payload>> futures = new ArrayList<>(payloads.size() - 1);
+    for (Payload payload : payloads.subList(1, payloads.size())) {
+      futures.add(executor.submit(() -> codec.apply(payload)));
+    }
+    List<Payload> result = new ArrayList<>(payloads.size());
+    result.add(codec.apply(payloads.get(0)));
+    try {
+      for (Future<Payload> future : futures) {
+        result.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PayloadCodecException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new PayloadCodecException(e.getCause());
+    } finally {
+      // No-op for completed futures, stops the remaining work if one of the payloads failed.
+      futures.forEach(future -> future.cancel(true));
+    }
+    return result;
+  }
+
+  private static long totalSerializedSize(List<Payload> payloads) {
+    long size = 0;
+    for (Payload payload : payloads) {
+      // Memoized by protobuf, so this doesn't serialize the payloads.
+      size += payload.getSerializedSize();
+    }
+    return size;
   }
 
   private Payload encodePayload(Payload payload) {
-    String keyId = getKeyId();
-    SecretKey key = getKey(keyId);
+    String keyId = keyProvider.getActiveKeyId();
 
-    byte[] encryptedData;
+    ByteString encryptedData;
     try {
-      encryptedData = encrypt(payload.toByteArray(), key);
+      encryptedData = encrypt(payload, keyProvider.getKey(keyId));
     } catch (Throwable e) {
       throw new DataConverterException(e);
     }
@@ -80,7 +177,7 @@ class CryptCodec implements PayloadCodec {
         .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
         .putMetadata(METADATA_ENCRYPTION_CIPHER_KEY, METADATA_ENCRYPTION_CIPHER)
         .putMetadata(METADATA_ENCRYPTION_KEY_ID_KEY, ByteString.copyFromUtf8(keyId))
-        .setData(ByteString.copyFrom(encryptedData))
+        .setData(encryptedData)
         .build();
   }
 
@@ -93,15 +190,9 @@ class CryptCodec implements PayloadCodec {
       } catch (Exception e) {
         throw new PayloadCodecException(e);
       }
-      SecretKey key = getKey(keyId);
-
-      byte[] plainData;
-      Payload decryptedPayload;
-
       try {
-        plainData = decrypt(payload.getData().toByteArray(), key);
-        decryptedPayload = Payload.parseFrom(plainData);
-        return decryptedPayload;
+        // Payloads encrypted before a key rotation are decrypted with the key they recorded.
+        return decrypt(payload.getData(), keyProvider.getKey(keyId));
       } catch (Throwable e) {
         throw new PayloadCodecException(e);
       }
@@ -110,51 +201,94 @@ class CryptCodec implements PayloadCodec {
     }
   }
 
-  private String getKeyId() {
-    // Currently there is no context available to vary which key is used.
-    // Use a fixed key for all payloads.
-    // This still supports key rotation as the key ID is recorded on payloads allowing
-    // decryption to use a previous key.
-
-    return "test-key-test-key-test-key-test!";
-  }
-
-  private SecretKey getKey(String keyId) {
-    // Key must be fetched from KMS or other secure storage.
-    // Hard coded here only for example purposes.
-    return new SecretKeySpec(keyId.getBytes(UTF_8), "AES");
-  }
-
   private static byte[] getNonce(int size) {
     byte[] nonce = new byte[size];
-    new SecureRandom().nextBytes(nonce);
+    RANDOM.nextBytes(nonce);
     return nonce;
   }
 
-  private byte[] encrypt(byte[] plainData, SecretKey key) throws Exception {
+  /**
+   * Encrypts the serialized payload directly into a single buffer that holds the nonce followed by
+   * the ciphertext. The buffer is wrapped without a copy, as nothing else references it.
+   */
+  private ByteString encrypt(Payload payload, SecretKey key) throws Exception {
     byte[] nonce = getNonce(GCM_NONCE_LENGTH_BYTE);
 
-    Cipher cipher = Cipher.getInstance(CIPHER);
+    Cipher cipher = CIPHERS.get();
     cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BIT, nonce));
 
-    byte[] encryptedData = cipher.doFinal(plainData);
-    return ByteBuffer.allocate(nonce.length + encryptedData.length)
-        .put(nonce)
-        .put(encryptedData)
-        .array();
+    byte[] plainData = payload.toByteArray();
+    ByteBuffer output =
+        ByteBuffer.allocate(GCM_NONCE_LENGTH_BYTE + cipher.getOutputSize(plainData.length));
+    output.put(nonce);
+    cipher.doFinal(ByteBuffer.wrap(plainData), output);
+    return UnsafeByteOperations.unsafeWrap(output.array(), 0, output.position());
   }
 
-  private byte[] decrypt(byte[] encryptedDataWithNonce, SecretKey key) throws Exception {
-    ByteBuffer buffer = ByteBuffer.wrap(encryptedDataWithNonce);
+  /** Reads the nonce and ciphertext through a read-only view of the payload data. */
+  private Payload decrypt(ByteString encryptedDataWithNonce, SecretKey key) throws Exception {
+    ByteBuffer input = encryptedDataWithNonce.asReadOnlyByteBuffer();
 
     byte[] nonce = new byte[GCM_NONCE_LENGTH_BYTE];
-    buffer.get(nonce);
-    byte[] encryptedData = new byte[buffer.remaining()];
-    buffer.get(encryptedData);
+    input.get(nonce);
 
-    Cipher cipher = Cipher.getInstance(CIPHER);
+    Cipher cipher = CIPHERS.get();
     cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BIT, nonce));
 
-    return cipher.doFinal(encryptedData);
+    ByteBuffer plainData = ByteBuffer.allocate(cipher.getOutputSize(input.remaining()));
+    cipher.doFinal(input, plainData);
+    plainData.flip();
+    return Payload.parseFrom(plainData);
+  }
+
+  /**
+   * Bounded executor shared by the codec instances. When its queue is full the submitting thread
+   * runs the task itself, which throttles callers instead of growing the queue.
+   */
+  private static final class SharedExecutor {
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService INSTANCE = newExecutor();
+
+    private static ExecutorService newExecutor() {
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              PARALLELISM,
+              PARALLELISM,
+              30,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(PARALLELISM * 16),
+              runnable -> {
+                Thread thread =
+                    new Thread(runnable, "crypt-codec-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.CallerRunsPolicy());
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+
+  /** Uses a single hard coded key, see {@link KeyStoreKeyProvider} for rotated keys. */
+  static final class HardCodedKeyProvider implements KeyProvider {
+    private static final String KEY_ID = "test-key-test-key-test-key-test!";
+
+    // Key must be fetched from KMS or other secure storage.
+    // Hard coded here only for example purposes.
+    private final SecretKey key = new SecretKeySpec(KEY_ID.getBytes(UTF_8), "AES");
+
+    @Override
+    public String getActiveKeyId() {
+      return KEY_ID;
+    }
+
+    @Override
+    public SecretKey getKey(String keyId) {
+      if (!KEY_ID.equals(keyId)) {
+        throw new IllegalArgumentException("Unknown key id: " + keyId);
+      }
+      return key;
+    }
   }
 }
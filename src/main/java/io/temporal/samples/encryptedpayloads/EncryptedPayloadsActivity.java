@@ -33,8 +33,9 @@ import io.temporal.worker.WorkerFactory;
 import io.temporal.workflow.Workflow;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * Hello World Temporal workflow that executes a single activity. Requires a local instance the
@@ -85,7 +86,22 @@ public class EncryptedPayloadsActivity {
     }
   }
 
+  /**
+   * Uses a hard coded key, or the keys of a PKCS12 keystore if its path is passed as the first
+   * argument. The keystore password is read from the KEYSTORE_PASSWORD environment variable.
+   */
   public static void main(String[] args) {
+    CryptCodec cryptCodec;
+    if (args.length > 0) {
+      String password = System.getenv("KEYSTORE_PASSWORD");
+      cryptCodec =
+          new CryptCodec(
+              new KeyStoreKeyProvider(
+                  Paths.get(args[0]), password == null ? new char[0] : password.toCharArray()));
+    } else {
+      cryptCodec = new CryptCodec();
+    }
+
     // gRPC stubs wrapper that talks to the local docker instance of temporal service.
     WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
     // client that can be used to start and signal workflows
@@ -93,10 +109,12 @@ public class EncryptedPayloadsActivity {
         WorkflowClient.newInstance(
             service,
             WorkflowClientOptions.newBuilder()
+                // Codecs are applied last to first, so payloads are compressed before they are
+                // encrypted. Encrypted data doesn't compress.
                 .setDataConverter(
                     new CodecDataConverter(
                         DefaultDataConverter.newDefaultInstance(),
-                        Collections.singletonList(new CryptCodec())))
+                        Arrays.asList(cryptCodec, new CompressionCodec())))
                 .build());
 
     // worker factory that can be used to create workers for specific task queues
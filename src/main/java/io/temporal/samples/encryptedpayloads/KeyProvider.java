@@ -0,0 +1,41 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Supplies the keys used by {@link CryptCodec}. New payloads are encrypted with the active key and
+ * the id of that key is recorded on the payload, so payloads encrypted before a key rotation are
+ * decrypted with the key they were encrypted with. Implementations are called for every payload
+ * and must be thread safe.
+ */
+interface KeyProvider {
+
+  /** Returns the id of the key to encrypt new payloads with. */
+  String getActiveKeyId();
+
+  /**
+   * Returns the key with the given id.
+   *
+   * @throws IllegalArgumentException if the key is unknown
+   */
+  SecretKey getKey(String keyId);
+}
@@ -0,0 +1,232 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the secret keys from a local keystore file. The key id is the alias of the entry and the
+ * most recently created entry is the active key, so a key is rotated by adding a new entry to the
+ * keystore, for example with:
+ *
+ * <pre>
+ * keytool -genseckey -alias key-2 -keyalg AES -keysize 256 -storetype PKCS12 -keystore keys.p12
+ * </pre>
+ *
+ * <p>Entries with the same creation date, which keystores may record with a coarse resolution, are
+ * ordered by alias and the greatest alias is active. Aliases are compared as strings, so pad
+ * numbered aliases (key-02 rather than key-2) to keep that order.
+ *
+ * <p>The keys are kept in memory and reloaded from the file by a background thread, so encoding and
+ * decoding don't wait for the file. The in-memory keys expire after a TTL: if the background reload
+ * keeps failing, the next lookup after the TTL reloads the file itself and fails if it can't. A key
+ * id that isn't known yet (a payload encrypted by a worker that has already seen a newer keystore)
+ * also triggers a reload, at most once per refresh interval, so payloads with an unknown or retired
+ * key id don't put the file back on the decoding path.
+ */
+class KeyStoreKeyProvider implements KeyProvider, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(KeyStoreKeyProvider.class);
+
+  static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(1);
+  static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+  /** Immutable snapshot of the keystore. */
+  private static final class Keys {
+    final Map<String, SecretKey> keys;
+    final String activeKeyId;
+    final long loadedAtNanos;
+
+    Keys(Map<String, SecretKey> keys, String activeKeyId, long loadedAtNanos) {
+      this.keys = keys;
+      this.activeKeyId = activeKeyId;
+      this.loadedAtNanos = loadedAtNanos;
+    }
+  }
+
+  private final Path file;
+  private final String type;
+  private final char[] password;
+  private final long ttlNanos;
+  private final long refreshIntervalNanos;
+  private final ScheduledExecutorService refresher;
+  private volatile Keys keys;
+  // guarded by this
+  private long missReloadedAtNanos;
+
+  KeyStoreKeyProvider(Path file, char[] password) {
+    this(file, "PKCS12", password, DEFAULT_REFRESH_INTERVAL, DEFAULT_TTL);
+  }
+
+  /**
+   * @param file keystore file
+   * @param type keystore type, for example PKCS12 or JCEKS
+   * @param password password of the keystore and its entries
+   * @param refreshInterval how often the keystore is reloaded in the background
+   * @param ttl how long loaded keys are used without a successful reload, should be a multiple of
+   *     the refresh interval
+   */
+  KeyStoreKeyProvider(
+      Path file, String type, char[] password, Duration refreshInterval, Duration ttl) {
+    this.file = file;
+    this.type = type;
+    this.password = password.clone();
+    this.ttlNanos = ttl.toNanos();
+    this.refreshIntervalNanos = refreshInterval.toNanos();
+    // Fail fast on a missing or unreadable keystore.
+    this.keys = load();
+    this.missReloadedAtNanos = keys.loadedAtNanos - refreshIntervalNanos;
+    this.refresher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "keystore-refresh");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long interval = refreshInterval.toMillis();
+    refresher.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public String getActiveKeyId() {
+    return current().activeKeyId;
+  }
+
+  @Override
+  public SecretKey getKey(String keyId) {
+    Keys current = current();
+    SecretKey key = current.keys.get(keyId);
+    if (key == null) {
+      key = reloadOnMiss(current).keys.get(keyId);
+      if (key == null) {
+        throw new IllegalArgumentException("Unknown key id: " + keyId);
+      }
+    }
+    return key;
+  }
+
+  @Override
+  public void close() {
+    refresher.shutdownNow();
+  }
+
+  private Keys current() {
+    Keys current = keys;
+    if (isExpired(current)) {
+      return reloadExpired();
+    }
+    return current;
+  }
+
+  private boolean isExpired(Keys keys) {
+    return System.nanoTime() - keys.loadedAtNanos > ttlNanos;
+  }
+
+  private synchronized Keys reloadExpired() {
+    // Threads queued behind the one that reloaded reuse its keys.
+    if (!isExpired(keys)) {
+      return keys;
+    }
+    return reload();
+  }
+
+  private synchronized Keys reloadOnMiss(Keys seen) {
+    if (keys != seen) {
+      // Reloaded since the lookup, by another thread or the refresher.
+      return keys;
+    }
+    long now = System.nanoTime();
+    if (now - missReloadedAtNanos < refreshIntervalNanos) {
+      return keys;
+    }
+    missReloadedAtNanos = now;
+    return reload();
+  }
+
+  private void refresh() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      // Keep using the loaded keys until they expire.
+      log.warn("Failed to reload keystore {}", file, e);
+    }
+  }
+
+  private synchronized Keys reload() {
+    Keys reloaded = load();
+    if (!reloaded.activeKeyId.equals(keys.activeKeyId)) {
+      log.info(
+          "Active encryption key changed from {} to {}", keys.activeKeyId, reloaded.activeKeyId);
+    }
+    keys = reloaded;
+    return reloaded;
+  }
+
+  private Keys load() {
+    try (InputStream in = Files.newInputStream(file)) {
+      KeyStore keyStore = KeyStore.getInstance(type);
+      keyStore.load(in, password);
+      KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(password);
+      Map<String, SecretKey> loaded = new HashMap<>();
+      String activeKeyId = null;
+      Date activeCreated = null;
+      Enumeration<String> aliases = keyStore.aliases();
+      while (aliases.hasMoreElements()) {
+        String alias = aliases.nextElement();
+        if (!keyStore.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class)) {
+          continue;
+        }
+        KeyStore.SecretKeyEntry entry =
+            (KeyStore.SecretKeyEntry) keyStore.getEntry(alias, protection);
+        loaded.put(alias, entry.getSecretKey());
+        Date created = keyStore.getCreationDate(alias);
+        if (activeCreated == null
+            || created.after(activeCreated)
+            || (created.equals(activeCreated) && alias.compareTo(activeKeyId) > 0)) {
+          activeKeyId = alias;
+          activeCreated = created;
+        }
+      }
+      if (activeKeyId == null) {
+        throw new IllegalStateException("No secret keys in keystore " + file);
+      }
+      return new Keys(Collections.unmodifiableMap(loaded), activeKeyId, System.nanoTime());
+    } catch (IOException | GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to load keystore " + file, e);
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package io.temporal.samples.fileprocessing;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -46,10 +47,16 @@ public class FileProcessingWorker {
     WorkflowClient client = WorkflowClient.newInstance(service);
 
     // worker factory that can be used to create workers for specific task queues
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     // Worker that listens on a task queue and hosts both workflow and activity implementations.
     final Worker workerForCommonTaskQueue = factory.newWorker(TASK_QUEUE);
-    workerForCommonTaskQueue.registerWorkflowImplementationTypes(FileProcessingWorkflowImpl.class);
+    // Process downloaded files in chunks that run in parallel on the host that downloaded them.
+    workerForCommonTaskQueue.addWorkflowImplementationFactory(
+        FileProcessingWorkflow.class,
+        () ->
+            new FileProcessingWorkflowImpl(
+                FileProcessingWorkflowImpl.DEFAULT_CHUNK_COUNT,
+                FileProcessingWorkflowImpl.DEFAULT_MAX_PARALLEL_CHUNKS));
     StoreActivitiesImpl storeActivityImpl = new StoreActivitiesImpl(hostSpecifiTaskQueue);
     workerForCommonTaskQueue.registerActivitiesImplementations(storeActivityImpl);
 
@@ -21,9 +21,13 @@ package io.temporal.samples.fileprocessing;
 
 import io.temporal.activity.ActivityOptions;
 import io.temporal.common.RetryOptions;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Promise;
 import io.temporal.workflow.Workflow;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -33,17 +37,50 @@ import java.util.Optional;
  * through use of a host specific task queue. The first activity returns the name of the host
  * specific task queue and all other activities are dispatched using the stub that is configured
  * with it. This assumes that FileProcessingWorker has a worker running on the same task queue.
+ *
+ * <p>Optionally the downloaded file is split into byte range chunks that are processed by
+ * concurrent activities on the host specific task queue, and then merged before the upload.
  */
 public class FileProcessingWorkflowImpl implements FileProcessingWorkflow {
 
+  /** Number of chunks a downloaded file is split into */
+  public static final int DEFAULT_CHUNK_COUNT = 8;
+
+  /** Maximum number of chunks processed at the same time */
+  public static final int DEFAULT_MAX_PARALLEL_CHUNKS = 4;
+
   // Uses the default task queue shared by the pool of workers.
   private final StoreActivities defaultTaskQueueActivities;
 
+  private final int chunkCount;
+  private final int maxParallelChunks;
+
+  /** Processes the whole file with a single activity. */
   public FileProcessingWorkflowImpl() {
+    this(1, 1);
+  }
+
+  /**
+   * @param chunkCount number of byte range chunks to split the downloaded file into. The file is
+   *     processed with a single activity if it is 1.
+   * @param maxParallelChunks maximum number of chunk activities running at the same time
+   */
+  public FileProcessingWorkflowImpl(int chunkCount, int maxParallelChunks) {
+    if (chunkCount < 1 || maxParallelChunks < 1) {
+      throw new IllegalArgumentException(
+          "chunkCount and maxParallelChunks must be positive: "
+              + chunkCount
+              + ", "
+              + maxParallelChunks);
+    }
+    this.chunkCount = chunkCount;
+    this.maxParallelChunks = maxParallelChunks;
     // Create activity clients.
     ActivityOptions ao =
         ActivityOptions.newBuilder()
-            .setStartToCloseTimeout(Duration.ofSeconds(20))
+            // Large downloads can take a while, the heartbeat timeout detects a stuck worker.
+            .setStartToCloseTimeout(Duration.ofMinutes(30))
+            .setHeartbeatTimeout(Duration.ofSeconds(10))
             .setRetryOptions(
                 RetryOptions.newBuilder()
                     .setInitialInterval(Duration.ofSeconds(1))
@@ -78,11 +115,15 @@ public class FileProcessingWorkflowImpl implements FileProcessingWorkflow {
             // This timeout has to be handled by Workflow code.
             .setScheduleToStartTimeout(Duration.ofSeconds(10))
             // Set the max time of a single activity execution attempt.
+            // This timeout should be be as short as the longest possible execution of the Activity,
+            // which for a large file can be long.
+            .setStartToCloseTimeout(Duration.ofMinutes(30))
             // Activity is going to be executed by a Worker listening to the specified
             // host task queue. If the activity is started but then the activity worker crashes
             // for some reason, we want to make sure that it is retried after the specified timeout.
-            // This timeout should be be as short as the longest possible execution of the Activity.
-            .setStartToCloseTimeout(Duration.ofSeconds(2))
+            // The activities heartbeat after each processed chunk, and a retry continues from the
+            // last heartbeated offset.
+            .setHeartbeatTimeout(Duration.ofSeconds(2))
             .setRetryOptions(
                 RetryOptions.newBuilder()
                     .setInitialInterval(Duration.ofSeconds(1))
@@ -93,10 +134,47 @@ public class FileProcessingWorkflowImpl implements FileProcessingWorkflow {
     StoreActivities hostSpecificStore =
         Workflow.newActivityStub(StoreActivities.class, hostActivityOptions);
 
-    // Call processFile activity to zip the file.
-    // Call the activity to process the file using worker-specific task queue.
-    String processed = hostSpecificStore.process(downloaded.getFileName());
+    String processed;
+    if (chunkCount > 1 && downloaded.getFileSize() > 0) {
+      processed = processInChunks(hostSpecificStore, downloaded);
+    } else {
+      // Call processFile activity to zip the file.
+      // Call the activity to process the file using worker-specific task queue.
+      processed = hostSpecificStore.process(downloaded.getFileName());
+    }
     // Call upload activity to upload the zipped file.
     hostSpecificStore.upload(processed, destination);
   }
+
+  /**
+   * Processes byte ranges of the file concurrently, keeping at most maxParallelChunks activities
+   * running, and merges the results in file order.
+   */
+  private String processInChunks(
+      StoreActivities hostSpecificStore, StoreActivities.TaskQueueFileNamePair downloaded) {
+    long fileSize = downloaded.getFileSize();
+    long chunkSize = (fileSize + chunkCount - 1) / chunkCount;
+    List<Promise<String>> chunks = new ArrayList<>();
+    List<Promise<?>> running = new ArrayList<>();
+    for (long offset = 0; offset < fileSize; offset += chunkSize) {
+      if (running.size() >= maxParallelChunks) {
+        // Fails the whole sequence if the completed chunk failed.
+        Promise.anyOf(running).get();
+        running.removeIf(Promise::isCompleted);
+      }
+      Promise<String> chunk =
+          Async.function(
+              hostSpecificStore::processChunk,
+              downloaded.getFileName(),
+              offset,
+              Math.min(chunkSize, fileSize - offset));
+      chunks.add(chunk);
+      running.add(chunk);
+    }
+    List<String> chunkFileNames = new ArrayList<>(chunks.size());
+    for (Promise<String> chunk : chunks) {
+      chunkFileNames.add(chunk.get());
+    }
+    return hostSpecificStore.merge(chunkFileNames);
+  }
 }
@@ -21,6 +21,7 @@ package io.temporal.samples.fileprocessing;
 
 import io.temporal.activity.ActivityInterface;
 import java.net.URL;
+import java.util.List;
 
 @ActivityInterface
 public interface StoreActivities {
@@ -28,12 +29,18 @@ public interface StoreActivities {
   final class TaskQueueFileNamePair {
     private String hostTaskQueue;
     private String fileName;
+    private long fileSize = -1;
 
     public TaskQueueFileNamePair(String hostTaskQueue, String fileName) {
       this.hostTaskQueue = hostTaskQueue;
       this.fileName = fileName;
     }
 
+    public TaskQueueFileNamePair(String hostTaskQueue, String fileName, long fileSize) {
+      this(hostTaskQueue, fileName);
+      this.fileSize = fileSize;
+    }
+
     /** Jackson needs it */
     public TaskQueueFileNamePair() {}
 
@@ -44,6 +51,11 @@ public interface StoreActivities {
     public String getFileName() {
       return fileName;
     }
+
+    /** Size of the downloaded file in bytes, or -1 if unknown. */
+    public long getFileSize() {
+      return fileSize;
+    }
   }
 
   /**
@@ -61,6 +73,24 @@ public interface StoreActivities {
    */
   String process(String inputFileName);
 
+  /**
+   * Process a byte range of a file.
+   *
+   * @param inputFileName source file name
+   * @param offset offset of the first byte of the range
+   * @param length number of bytes in the range
+   * @return name of the file that holds the processed range
+   */
+  String processChunk(String inputFileName, long offset, long length);
+
+  /**
+   * Concatenates processed chunks into a single file.
+   *
+   * @param chunkFileNames processed chunk file names in file order
+   * @return merged file name
+   */
+  String merge(List<String> chunkFileNames);
+
   /**
    * Downloads file to local disk.
    *
@@ -19,16 +19,41 @@
 
 package io.temporal.samples.fileprocessing;
 
-import com.google.common.io.Files;
-import com.google.common.io.Resources;
 import io.temporal.activity.Activity;
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.activity.ActivityInfo;
 import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
-/** Store activities implementation. */
+/**
+ * Store activities implementation. Files are streamed through a fixed size buffer, so the memory
+ * used does not depend on the file size. After each chunk the number of bytes written is recorded
+ * as the heartbeat details, and a retried attempt continues from that offset instead of starting
+ * over.
+ */
 public class StoreActivitiesImpl implements StoreActivities {
 
+  /** Size of the buffer used to copy a single chunk. */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Bytes merged between heartbeats. Copying between files is fast, but a whole chunk of a large
+   * file can take longer than the heartbeat timeout.
+   */
+  static final long MERGE_SLICE_SIZE = 8 * 1024 * 1024;
+
   private final String hostSpecificTaskQueue;
 
   public StoreActivitiesImpl(String taskQueue) {
@@ -36,15 +61,35 @@ public class StoreActivitiesImpl implements StoreActivities {
   }
 
   @Override
-  @SuppressWarnings("deprecation")
   public TaskQueueFileNamePair download(URL url) {
+    ActivityExecutionContext context = Activity.getExecutionContext();
     try {
-      byte[] binary = Resources.toByteArray(url);
-      File destination = new File(Files.createTempDir(), "downloaded");
-      Files.write(binary, destination);
+      // The directory depends only on the activity, so all attempts write to the same file.
+      Path directory = workDirectory(context.getInfo());
+      Files.createDirectories(directory);
+      File destination = directory.resolve("downloaded").toFile();
+      long offset = resumeOffset(context, destination);
+      URLConnection connection = url.openConnection();
+      if (offset > 0) {
+        connection.setRequestProperty("Range", "bytes=" + offset + "-");
+        if (!isPartialContent(connection)) {
+          // The server ignored the range request and sends the whole resource.
+          offset = 0;
+        }
+      }
+      long size;
+      try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream());
+          FileChannel out = openForResume(destination, offset)) {
+        size = copyChunks(in, out, offset, Long.MAX_VALUE, context);
+      }
       System.out.println(
-          "download activity: downloaded from " + url + " to " + destination.getAbsolutePath());
-      return new TaskQueueFileNamePair(hostSpecificTaskQueue, destination.getAbsolutePath());
+          "download activity: downloaded "
+              + size
+              + " bytes from "
+              + url
+              + " to "
+              + destination.getAbsolutePath());
+      return new TaskQueueFileNamePair(hostSpecificTaskQueue, destination.getAbsolutePath(), size);
     } catch (IOException e) {
       throw Activity.wrap(e);
     }
@@ -54,7 +99,7 @@ public class StoreActivitiesImpl implements StoreActivities {
   public String process(String sourceFile) {
     System.out.println("process activity: sourceFile= " + sourceFile);
     try {
-      String processedName = processFileImpl(sourceFile);
+      String processedName = processFileImpl(sourceFile, Activity.getExecutionContext());
       System.out.println("process activity: processed file: " + processedName);
       return processedName;
     } catch (IOException e) {
@@ -62,13 +107,71 @@ public class StoreActivitiesImpl implements StoreActivities {
     }
   }
 
-  @SuppressWarnings("deprecation")
-  private String processFileImpl(String fileName) throws IOException {
+  private String processFileImpl(String fileName, ActivityExecutionContext context)
+      throws IOException {
     File inputFile = new File(fileName);
     File inputDir = inputFile.getParentFile();
     File outputFile = new File(inputDir, "processed");
-    // We don't really process it, just copy to keep the sample simple.
-    Files.copy(inputFile, outputFile);
+    long offset = resumeOffset(context, outputFile);
+    if (offset > 0) {
+      System.out.println("process activity: resuming " + fileName + " at offset " + offset);
+    }
+    // We don't really process it, just copy chunk by chunk to keep the sample simple.
+    try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+        FileChannel out = openForResume(outputFile, offset)) {
+      in.position(offset);
+      copyChunks(in, out, offset, Long.MAX_VALUE, context);
+    }
+    return outputFile.getAbsolutePath();
+  }
+
+  @Override
+  public String processChunk(String inputFileName, long offset, long length) {
+    System.out.println(
+        "processChunk activity: sourceFile= " + inputFileName + " range=" + offset + "+" + length);
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    File inputFile = new File(inputFileName);
+    File outputFile = new File(inputFile.getParentFile(), "processed.part-" + offset);
+    long done = resumeOffset(context, outputFile);
+    // We don't really process it, just copy the range to keep the sample simple.
+    try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+        FileChannel out = openForResume(outputFile, done)) {
+      in.position(offset + done);
+      copyChunks(in, out, done, length, context);
+    } catch (IOException e) {
+      throw Activity.wrap(e);
+    }
+    return outputFile.getAbsolutePath();
+  }
+
+  @Override
+  public String merge(List<String> chunkFileNames) {
+    if (chunkFileNames.isEmpty()) {
+      throw new IllegalArgumentException("No chunks to merge");
+    }
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    File outputFile = new File(new File(chunkFileNames.get(0)).getParentFile(), "processed");
+    try (FileChannel out =
+        FileChannel.open(
+            outputFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (String chunkFileName : chunkFileNames) {
+        try (FileChannel in = FileChannel.open(Paths.get(chunkFileName), StandardOpenOption.READ)) {
+          long size = in.size();
+          long position = 0;
+          while (position < size) {
+            position += in.transferTo(position, Math.min(MERGE_SLICE_SIZE, size - position), out);
+            context.heartbeat(out.position());
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw Activity.wrap(e);
+    }
+    System.out.println(
+        "merge activity: merged " + chunkFileNames.size() + " chunks into " + outputFile);
     return outputFile.getAbsolutePath();
   }
 
@@ -81,4 +184,62 @@ public class StoreActivitiesImpl implements StoreActivities {
     // Faking upload to simplify sample implementation.
     System.out.println("upload activity: uploaded from " + localFileName + " to " + url);
   }
+
+  /**
+   * Returns the offset a retried attempt can continue from. The heartbeated offset is only trusted
+   * up to the size of the file actually present, as the retry can run on a fresh host.
+   */
+  private static long resumeOffset(ActivityExecutionContext context, File file) {
+    long checkpoint = context.getHeartbeatDetails(Long.class).orElse(0L);
+    return Math.min(checkpoint, file.length());
+  }
+
+  private static FileChannel openForResume(File file, long offset) throws IOException {
+    FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    // Drop anything written after the last checkpoint.
+    channel.truncate(offset);
+    channel.position(offset);
+    return channel;
+  }
+
+  /**
+   * Copies the input to the output through a bounded buffer, heartbeating the output offset after
+   * each chunk. Stops at the end of the input or once the output offset reaches {@code end}.
+   *
+   * @return offset of the end of the output
+   */
+  private static long copyChunks(
+      ReadableByteChannel in,
+      FileChannel out,
+      long offset,
+      long end,
+      ActivityExecutionContext context)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    while (offset < end) {
+      buffer.clear();
+      buffer.limit((int) Math.min(CHUNK_SIZE, end - offset));
+      if (in.read(buffer) < 0) {
+        break;
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        offset += out.write(buffer);
+      }
+      // Heartbeats are throttled by the SDK, so recording every chunk is cheap.
+      context.heartbeat(offset);
+    }
+    return offset;
+  }
+
+  private static boolean isPartialContent(URLConnection connection) throws IOException {
+    return connection instanceof HttpURLConnection
+        && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+  }
+
+  private static Path workDirectory(ActivityInfo info) {
+    String name = (info.getWorkflowId() + "-" + info.getActivityId()).replaceAll("[^\\w.-]", "_");
+    return Paths.get(System.getProperty("java.io.tmpdir"), "fileprocessing", name);
+  }
 }
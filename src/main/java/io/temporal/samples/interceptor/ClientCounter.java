@@ -19,94 +19,67 @@
 
 package io.temporal.samples.interceptor;
 
-import java.util.AbstractMap;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /** Simple counter class. */
 public class ClientCounter {
-  private static final String NUM_OF_GET_RESULT = "numOfGetResult";
-  private static final String NUM_OF_WORKFLOW_EXECUTIONS = "numOfWorkflowExec";
-  private static final String NUM_OF_SIGNALS = "numOfSignals";
-  private static final String NUM_OF_QUERIES = "numOfQueries";
-  private static final Map<String, Map<String, Integer>> perWorkflowIdMap =
-      Collections.synchronizedMap(new HashMap<>());
+
+  public enum Type {
+    WORKFLOW_EXECUTIONS,
+    SIGNALS,
+    QUERIES,
+    GET_RESULTS
+  }
+
+  private static final PerWorkflowCounters<Type> counters =
+      new PerWorkflowCounters<>(Type.class, PerWorkflowCounters.DEFAULT_TTL);
 
   public String getInfo() {
     StringBuilder stringBuilder = new StringBuilder();
-    for (String workflowRunId : perWorkflowIdMap.keySet()) {
+    for (String workflowRunId : counters.getWorkflowIds()) {
       stringBuilder.append("\n** Workflow ID: " + workflowRunId);
-      Map<String, Integer> info = perWorkflowIdMap.get(workflowRunId);
       stringBuilder.append(
-          "\n\tTotal Number of Workflow Exec: " + info.get(NUM_OF_WORKFLOW_EXECUTIONS));
-      stringBuilder.append("\n\tTotal Number of Signals: " + info.get(NUM_OF_SIGNALS));
-      stringBuilder.append("\n\tTotal Number of Queries: " + info.get(NUM_OF_QUERIES));
-      stringBuilder.append("\n\tTotal Number of GetResult: " + info.get(NUM_OF_GET_RESULT));
+          "\n\tTotal Number of Workflow Exec: " + getNumOfWorkflowExecutions(workflowRunId));
+      stringBuilder.append("\n\tTotal Number of Signals: " + getNumOfSignals(workflowRunId));
+      stringBuilder.append("\n\tTotal Number of Queries: " + getNumOfQueries(workflowRunId));
+      stringBuilder.append("\n\tTotal Number of GetResult: " + getNumOfGetResults(workflowRunId));
     }
 
     return stringBuilder.toString();
   }
 
-  private void add(String workflowId, String type) {
-    if (!perWorkflowIdMap.containsKey(workflowId)) {
-      perWorkflowIdMap.put(workflowId, getDefaultInfoMap());
-    }
-
-    if (perWorkflowIdMap.get(workflowId).get(type) == null) {
-      perWorkflowIdMap.get(workflowId).put(type, 1);
-    } else {
-      int current = perWorkflowIdMap.get(workflowId).get(type).intValue();
-      int next = current + 1;
-      perWorkflowIdMap.get(workflowId).put(type, next);
-    }
-  }
-
   public int getNumOfWorkflowExecutions(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_WORKFLOW_EXECUTIONS);
+    return (int) counters.get(workflowId, Type.WORKFLOW_EXECUTIONS);
   }
 
   public int getNumOfGetResults(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_GET_RESULT);
+    return (int) counters.get(workflowId, Type.GET_RESULTS);
   }
 
   public int getNumOfSignals(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_SIGNALS);
+    return (int) counters.get(workflowId, Type.SIGNALS);
   }
 
   public int getNumOfQueries(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_QUERIES);
-  }
-
-  /**
-   * Creates a default counter info map for a workflowid
-   *
-   * @return default counter info map
-   */
-  private Map<String, Integer> getDefaultInfoMap() {
-    return Stream.of(
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_WORKFLOW_EXECUTIONS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_SIGNALS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_GET_RESULT, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_QUERIES, 0))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    return (int) counters.get(workflowId, Type.QUERIES);
   }
 
   public void addStartInvocation(String workflowId) {
-    add(workflowId, NUM_OF_WORKFLOW_EXECUTIONS);
+    counters.increment(workflowId, Type.WORKFLOW_EXECUTIONS);
   }
 
   public void addSignalInvocation(String workflowId) {
-    add(workflowId, NUM_OF_SIGNALS);
+    counters.increment(workflowId, Type.SIGNALS);
   }
 
   public void addGetResultInvocation(String workflowId) {
-    add(workflowId, NUM_OF_GET_RESULT);
+    counters.increment(workflowId, Type.GET_RESULTS);
   }
 
   public void addQueryInvocation(String workflowId) {
-    add(workflowId, NUM_OF_QUERIES);
+    counters.increment(workflowId, Type.QUERIES);
+  }
+
+  /** The counters of a workflow whose result was received are removed after a TTL. */
+  public void workflowFinished(String workflowId) {
+    counters.markFinished(workflowId);
   }
 }
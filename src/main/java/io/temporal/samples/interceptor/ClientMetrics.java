@@ -0,0 +1,187 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.interceptor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.payload.codec.PayloadCodec;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Micrometer metrics of the calls made through {@link SimpleClientCallsInterceptor}: call latency,
+ * failures, and the byte size of the payloads sent and received before and after the payload
+ * codecs.
+ *
+ * <p>The meters are tagged with the operation and a type. The type is the workflow type for starts
+ * and results, the signal name for signals and the query type for queries, as the signal and query
+ * calls don't know the workflow type.
+ *
+ * <p>Payload sizes are recorded by the codecs returned from {@link #preCodecSizes()} and {@link
+ * #postCodecSizes()}, which have to be the last and the first codec of the client's {@code
+ * CodecDataConverter}. Payloads are converted on the calling thread, so the codecs find the meters
+ * of the call in progress through a thread local. Payloads converted outside of a call, for example
+ * by a worker that shares the data converter, are not recorded.
+ */
+public class ClientMetrics {
+
+  public enum Operation {
+    START,
+    SIGNAL_WITH_START,
+    SIGNAL,
+    QUERY,
+    GET_RESULT
+  }
+
+  static final String CALL_LATENCY = "client_call_latency";
+  static final String CALL_FAILURES = "client_call_failures";
+  static final String PAYLOAD_SIZE = "client_payload_size_bytes";
+
+  static final String OPERATION_TAG = "operation";
+  static final String TYPE_TAG = "type";
+  static final String STAGE_TAG = "stage";
+  static final String EXCEPTION_TAG = "exception";
+
+  static final String PRE_CODEC = "pre_codec";
+  static final String POST_CODEC = "post_codec";
+
+  private final MeterRegistry registry;
+  private final Map<Operation, ConcurrentMap<String, CallMeters>> meters =
+      new EnumMap<>(Operation.class);
+  private final ThreadLocal<CallMeters> currentCall = new ThreadLocal<>();
+
+  public ClientMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    for (Operation operation : Operation.values()) {
+      meters.put(operation, new ConcurrentHashMap<>());
+    }
+  }
+
+  /** Codec recording the size of the payloads as produced by the payload converter. */
+  public PayloadCodec preCodecSizes() {
+    return new SizeRecordingCodec(false);
+  }
+
+  /** Codec recording the size of the payloads as sent to or received from the server. */
+  public PayloadCodec postCodecSizes() {
+    return new SizeRecordingCodec(true);
+  }
+
+  /** Marks the start of a call on this thread and returns the meters to pass to {@link #end}. */
+  CallMeters begin(Operation operation, String type) {
+    ConcurrentMap<String, CallMeters> byType = meters.get(operation);
+    CallMeters call = byType.get(type);
+    if (call == null) {
+      call = byType.computeIfAbsent(type, t -> new CallMeters(operation, t));
+    }
+    currentCall.set(call);
+    return call;
+  }
+
+  /** Records the latency of a call started at {@code startNanos} and, if it failed, the failure. */
+  void end(CallMeters call, long startNanos, Throwable failure) {
+    currentCall.remove();
+    call.latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    if (failure != null) {
+      registry
+          .counter(
+              CALL_FAILURES,
+              OPERATION_TAG,
+              call.operation,
+              TYPE_TAG,
+              call.type,
+              EXCEPTION_TAG,
+              failure.getClass().getSimpleName())
+          .increment();
+    }
+  }
+
+  final class CallMeters {
+    private final String operation;
+    private final String type;
+    private final Timer latency;
+    private final DistributionSummary preCodecSize;
+    private final DistributionSummary postCodecSize;
+
+    private CallMeters(Operation operation, String type) {
+      this.operation = operation.name().toLowerCase();
+      this.type = type;
+      this.latency =
+          Timer.builder(CALL_LATENCY)
+              .tag(OPERATION_TAG, this.operation)
+              .tag(TYPE_TAG, type)
+              .publishPercentileHistogram()
+              .register(registry);
+      this.preCodecSize = payloadSize(PRE_CODEC);
+      this.postCodecSize = payloadSize(POST_CODEC);
+    }
+
+    private DistributionSummary payloadSize(String stage) {
+      return DistributionSummary.builder(PAYLOAD_SIZE)
+          .baseUnit("bytes")
+          .tag(OPERATION_TAG, operation)
+          .tag(TYPE_TAG, type)
+          .tag(STAGE_TAG, stage)
+          .publishPercentileHistogram()
+          .register(registry);
+    }
+  }
+
+  private final class SizeRecordingCodec implements PayloadCodec {
+    private final boolean postCodec;
+
+    private SizeRecordingCodec(boolean postCodec) {
+      this.postCodec = postCodec;
+    }
+
+    @NotNull
+    @Override
+    public List<Payload> encode(@NotNull List<Payload> payloads) {
+      record(payloads);
+      return payloads;
+    }
+
+    @NotNull
+    @Override
+    public List<Payload> decode(@NotNull List<Payload> payloads) {
+      record(payloads);
+      return payloads;
+    }
+
+    private void record(List<Payload> payloads) {
+      CallMeters call = currentCall.get();
+      if (call == null || payloads.isEmpty()) {
+        return;
+      }
+      long size = 0;
+      for (int i = 0; i < payloads.size(); i++) {
+        size += payloads.get(i).getSerializedSize();
+      }
+      (postCodec ? call.postCodecSize : call.preCodecSize).record(size);
+    }
+  }
+}
@@ -19,10 +19,15 @@
 
 package io.temporal.samples.interceptor;
 
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.client.WorkflowStub;
+import io.temporal.common.converter.CodecDataConverter;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.common.interceptors.WorkflowClientInterceptor;
 import io.temporal.samples.interceptor.activities.MyActivitiesImpl;
 import io.temporal.samples.interceptor.workflow.MyChildWorkflowImpl;
@@ -32,6 +37,7 @@ import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
 import io.temporal.worker.WorkerFactoryOptions;
+import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +52,26 @@ public class InterceptorStarter {
   public static void main(String[] args) {
 
     final ClientCounter clientCounter = new ClientCounter();
-    final WorkflowClientInterceptor clientInterceptor = new SimpleClientInterceptor(clientCounter);
+    // The registry can be exposed with MetricsUtils.startPrometheusScrapeEndpoint, see the metrics
+    // sample. Here the client metrics are printed before exiting.
+    final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    final ClientMetrics clientMetrics = new ClientMetrics(registry);
+    final WorkflowClientInterceptor clientInterceptor =
+        new SimpleClientInterceptor(clientCounter, clientMetrics);
+    // Payload codecs such as encryption or compression go between the two size recording codecs
+    final DataConverter dataConverter =
+        new CodecDataConverter(
+            DefaultDataConverter.newDefaultInstance(),
+            Arrays.asList(clientMetrics.postCodecSizes(), clientMetrics.preCodecSizes()));
 
     WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
     WorkflowClient client =
         WorkflowClient.newInstance(
-            service, WorkflowClientOptions.newBuilder().setInterceptors(clientInterceptor).build());
+            service,
+            WorkflowClientOptions.newBuilder()
+                .setInterceptors(clientInterceptor)
+                .setDataConverter(dataConverter)
+                .build());
 
     WorkerFactoryOptions wfo =
         WorkerFactoryOptions.newBuilder()
@@ -100,6 +120,10 @@ public class InterceptorStarter {
     logger.info("Collected Client Counter Info: ");
     logger.info(clientCounter.getInfo());
 
+    // Print the Client Metrics
+    logger.info("Collected Client Metrics: ");
+    logger.info(registry.scrape());
+
     System.exit(0);
   }
 }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.interceptor;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters per workflow id with one slot per enum constant. Increments don't take locks: the slots
+ * are {@link LongAdder}s, which spread contended updates over cells, and the entry of a workflow
+ * is only created once. Entries of workflows marked as finished are removed after a TTL, so the
+ * map doesn't grow with every workflow ever seen.
+ */
+final class PerWorkflowCounters<E extends Enum<E>> {
+
+  static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+  private static final class Entry {
+    final LongAdder[] slots;
+    // System.nanoTime() when the workflow was marked as finished, 0 while it runs
+    volatile long finishedAtNanos;
+
+    Entry(int slotCount) {
+      slots = new LongAdder[slotCount];
+      for (int i = 0; i < slotCount; i++) {
+        slots[i] = new LongAdder();
+      }
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final int slotCount;
+  private final long ttlNanos;
+  private final AtomicLong nextSweepNanos;
+
+  PerWorkflowCounters(Class<E> slotType, Duration ttl) {
+    this.slotCount = slotType.getEnumConstants().length;
+    this.ttlNanos = ttl.toNanos();
+    this.nextSweepNanos = new AtomicLong(System.nanoTime() + ttlNanos);
+  }
+
+  void increment(String workflowId, E slot) {
+    Entry entry = entry(workflowId);
+    entry.slots[slot.ordinal()].increment();
+    if (entry.finishedAtNanos != 0) {
+      // the workflow id is in use again, e.g. by a new run
+      entry.finishedAtNanos = 0;
+    }
+    sweepIfDue();
+  }
+
+  /** Returns the count, or 0 for a workflow without counters. */
+  long get(String workflowId, E slot) {
+    Entry entry = entries.get(workflowId);
+    return entry == null ? 0 : entry.slots[slot.ordinal()].sum();
+  }
+
+  /** Starts the TTL after which the counters of the workflow are removed. */
+  void markFinished(String workflowId) {
+    Entry entry = entries.get(workflowId);
+    if (entry != null) {
+      // 0 means running
+      entry.finishedAtNanos = System.nanoTime() | 1;
+    }
+  }
+
+  Set<String> getWorkflowIds() {
+    return entries.keySet();
+  }
+
+  private Entry entry(String workflowId) {
+    // get first, computeIfAbsent locks the bin even if the entry exists
+    Entry entry = entries.get(workflowId);
+    return entry != null ? entry : entries.computeIfAbsent(workflowId, id -> new Entry(slotCount));
+  }
+
+  /** Removes expired entries, at most once per TTL and only on the thread that wins the race. */
+  private void sweepIfDue() {
+    long now = System.nanoTime();
+    long nextSweep = nextSweepNanos.get();
+    if (now - nextSweep < 0 || !nextSweepNanos.compareAndSet(nextSweep, now + ttlNanos)) {
+      return;
+    }
+    entries.forEach(
+        (workflowId, entry) -> {
+          long finishedAt = entry.finishedAtNanos;
+          if (finishedAt != 0 && now - finishedAt >= ttlNanos) {
+            entries.remove(workflowId, entry);
+          }
+        });
+  }
+}
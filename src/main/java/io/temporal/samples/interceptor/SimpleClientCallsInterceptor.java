@@ -19,40 +19,113 @@
 
 package io.temporal.samples.interceptor;
 
+import io.temporal.client.WorkflowFailedException;
 import io.temporal.common.interceptors.WorkflowClientCallsInterceptor;
 import io.temporal.common.interceptors.WorkflowClientCallsInterceptorBase;
+import io.temporal.samples.interceptor.ClientMetrics.CallMeters;
+import io.temporal.samples.interceptor.ClientMetrics.Operation;
 import java.util.concurrent.TimeoutException;
 
 public class SimpleClientCallsInterceptor extends WorkflowClientCallsInterceptorBase {
   private ClientCounter clientCounter;
+  private ClientMetrics clientMetrics;
 
   public SimpleClientCallsInterceptor(
-      WorkflowClientCallsInterceptor next, ClientCounter clientCounter) {
+      WorkflowClientCallsInterceptor next,
+      ClientCounter clientCounter,
+      ClientMetrics clientMetrics) {
     super(next);
     this.clientCounter = clientCounter;
+    this.clientMetrics = clientMetrics;
   }
 
   @Override
   public WorkflowStartOutput start(WorkflowStartInput input) {
     clientCounter.addStartInvocation(input.getWorkflowId());
-    return super.start(input);
+    CallMeters call = clientMetrics.begin(Operation.START, input.getWorkflowType());
+    long startNanos = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return super.start(input);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      clientMetrics.end(call, startNanos, failure);
+    }
+  }
+
+  @Override
+  public WorkflowSignalWithStartOutput signalWithStart(WorkflowSignalWithStartInput input) {
+    CallMeters call =
+        clientMetrics.begin(
+            Operation.SIGNAL_WITH_START, input.getWorkflowStartInput().getWorkflowType());
+    long startNanos = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return super.signalWithStart(input);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      clientMetrics.end(call, startNanos, failure);
+    }
   }
 
   @Override
   public WorkflowSignalOutput signal(WorkflowSignalInput input) {
     clientCounter.addSignalInvocation(input.getWorkflowExecution().getWorkflowId());
-    return super.signal(input);
+    CallMeters call = clientMetrics.begin(Operation.SIGNAL, input.getSignalName());
+    long startNanos = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return super.signal(input);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      clientMetrics.end(call, startNanos, failure);
+    }
   }
 
   @Override
   public <R> GetResultOutput<R> getResult(GetResultInput<R> input) throws TimeoutException {
     clientCounter.addGetResultInvocation(input.getWorkflowExecution().getWorkflowId());
-    return super.getResult(input);
+    CallMeters call =
+        clientMetrics.begin(Operation.GET_RESULT, input.getWorkflowType().orElse("unknown"));
+    long startNanos = System.nanoTime();
+    Throwable failure = null;
+    GetResultOutput<R> output;
+    try {
+      output = super.getResult(input);
+    } catch (WorkflowFailedException e) {
+      // the workflow failed, timed out, was canceled or terminated, it is finished all the same
+      failure = e;
+      clientCounter.workflowFinished(input.getWorkflowExecution().getWorkflowId());
+      throw e;
+    } catch (RuntimeException | TimeoutException e) {
+      failure = e;
+      throw e;
+    } finally {
+      clientMetrics.end(call, startNanos, failure);
+    }
+    clientCounter.workflowFinished(input.getWorkflowExecution().getWorkflowId());
+    return output;
   }
 
   @Override
   public <R> QueryOutput<R> query(QueryInput<R> input) {
     clientCounter.addQueryInvocation(input.getWorkflowExecution().getWorkflowId());
-    return super.query(input);
+    CallMeters call = clientMetrics.begin(Operation.QUERY, input.getQueryType());
+    long startNanos = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return super.query(input);
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      clientMetrics.end(call, startNanos, failure);
+    }
   }
 }
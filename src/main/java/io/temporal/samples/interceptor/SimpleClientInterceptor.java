@@ -19,20 +19,28 @@
 
 package io.temporal.samples.interceptor;
 
+import io.micrometer.core.instrument.Metrics;
 import io.temporal.common.interceptors.WorkflowClientCallsInterceptor;
 import io.temporal.common.interceptors.WorkflowClientInterceptorBase;
 
 public class SimpleClientInterceptor extends WorkflowClientInterceptorBase {
 
   private ClientCounter clientCounter;
+  private ClientMetrics clientMetrics;
 
+  /** Records the client metrics into the Micrometer global registry. */
   public SimpleClientInterceptor(ClientCounter clientCounter) {
+    this(clientCounter, new ClientMetrics(Metrics.globalRegistry));
+  }
+
+  public SimpleClientInterceptor(ClientCounter clientCounter, ClientMetrics clientMetrics) {
     this.clientCounter = clientCounter;
+    this.clientMetrics = clientMetrics;
   }
 
   @Override
   public WorkflowClientCallsInterceptor workflowClientCallsInterceptor(
       WorkflowClientCallsInterceptor next) {
-    return new SimpleClientCallsInterceptor(next, clientCounter);
+    return new SimpleClientCallsInterceptor(next, clientCounter, clientMetrics);
   }
 }
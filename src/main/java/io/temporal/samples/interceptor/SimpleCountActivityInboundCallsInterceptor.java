@@ -42,7 +42,7 @@ public class SimpleCountActivityInboundCallsInterceptor
   public ActivityOutput execute(ActivityInput input) {
     WorkerCounter.add(
         this.activityExecutionContext.getInfo().getWorkflowId(),
-        WorkerCounter.NUM_OF_ACTIVITY_EXECUTIONS);
+        WorkerCounter.Type.ACTIVITY_EXECUTIONS);
     return super.execute(input);
   }
 }
@@ -42,19 +42,30 @@ public class SimpleCountWorkflowInboundCallsInterceptor
 
   @Override
   public WorkflowOutput execute(WorkflowInput input) {
-    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.NUM_OF_WORKFLOW_EXECUTIONS);
-    return super.execute(input);
+    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.Type.WORKFLOW_EXECUTIONS);
+    WorkflowOutput output;
+    try {
+      output = super.execute(input);
+    } catch (RuntimeException e) {
+      // failed. Continue-as-new and the destruction of a workflow evicted from the cache exit the
+      // workflow thread with an Error, which is not caught: the workflow is still running, and a
+      // workflow continued as new keeps its id and so its counters.
+      WorkerCounter.finished(this.workflowInfo.getWorkflowId());
+      throw e;
+    }
+    WorkerCounter.finished(this.workflowInfo.getWorkflowId());
+    return output;
   }
 
   @Override
   public void handleSignal(SignalInput input) {
-    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.NUM_OF_SIGNALS);
+    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.Type.SIGNALS);
     super.handleSignal(input);
   }
 
   @Override
   public QueryOutput handleQuery(QueryInput input) {
-    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.NUM_OF_QUERIES);
+    WorkerCounter.add(this.workflowInfo.getWorkflowId(), WorkerCounter.Type.QUERIES);
     return super.handleQuery(input);
   }
 }
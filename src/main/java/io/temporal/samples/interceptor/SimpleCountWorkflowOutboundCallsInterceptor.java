@@ -33,7 +33,7 @@ public class SimpleCountWorkflowOutboundCallsInterceptor
   @Override
   public <R> ChildWorkflowOutput<R> executeChildWorkflow(ChildWorkflowInput<R> input) {
     WorkerCounter.add(
-        Workflow.getInfo().getWorkflowId(), WorkerCounter.NUM_OF_CHILD_WORKFLOW_EXECUTIONS);
+        Workflow.getInfo().getWorkflowId(), WorkerCounter.Type.CHILD_WORKFLOW_EXECUTIONS);
     return super.executeChildWorkflow(input);
   }
 }
@@ -19,91 +19,71 @@
 
 package io.temporal.samples.interceptor;
 
-import java.util.AbstractMap;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /**
  * Simple counter class. Static impl just for the sake of the sample. Note: in your applications you
  * should use CDI for example instead.
  */
 public class WorkerCounter {
-  private static Map<String, Map<String, Integer>> perWorkflowIdMap =
-      Collections.synchronizedMap(new HashMap<>());
 
-  public static final String NUM_OF_WORKFLOW_EXECUTIONS = "numOfWorkflowExec";
-  public static final String NUM_OF_CHILD_WORKFLOW_EXECUTIONS = "numOfChildWorkflowExec";
-  public static final String NUM_OF_ACTIVITY_EXECUTIONS = "numOfActivityExec";
-  public static final String NUM_OF_SIGNALS = "numOfSignals";
-  public static final String NUM_OF_QUERIES = "numOfQueries";
+  public enum Type {
+    WORKFLOW_EXECUTIONS,
+    CHILD_WORKFLOW_EXECUTIONS,
+    ACTIVITY_EXECUTIONS,
+    SIGNALS,
+    QUERIES
+  }
 
-  public static void add(String workflowId, String type) {
-    if (!perWorkflowIdMap.containsKey(workflowId)) {
-      perWorkflowIdMap.put(workflowId, getDefaultInfoMap());
-    }
+  private static final PerWorkflowCounters<Type> counters =
+      new PerWorkflowCounters<>(Type.class, PerWorkflowCounters.DEFAULT_TTL);
 
-    if (perWorkflowIdMap.get(workflowId).get(type) == null) {
-      perWorkflowIdMap.get(workflowId).put(type, 1);
-    } else {
-      int current = perWorkflowIdMap.get(workflowId).get(type).intValue();
-      int next = current + 1;
-      perWorkflowIdMap.get(workflowId).put(type, next);
-    }
+  public static void add(String workflowId, Type type) {
+    counters.increment(workflowId, type);
+  }
+
+  /** The counters of a finished workflow are removed after a TTL. */
+  public static void finished(String workflowId) {
+    counters.markFinished(workflowId);
   }
 
   public static int getNumOfWorkflowExecutions(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_WORKFLOW_EXECUTIONS);
+    return get(workflowId, Type.WORKFLOW_EXECUTIONS);
   }
 
   public static int getNumOfChildWorkflowExecutions(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_CHILD_WORKFLOW_EXECUTIONS);
+    return get(workflowId, Type.CHILD_WORKFLOW_EXECUTIONS);
   }
 
   public static int getNumOfActivityExecutions(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_ACTIVITY_EXECUTIONS);
+    return get(workflowId, Type.ACTIVITY_EXECUTIONS);
   }
 
   public static int getNumOfSignals(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_SIGNALS);
+    return get(workflowId, Type.SIGNALS);
   }
 
   public static int getNumOfQueries(String workflowId) {
-    return perWorkflowIdMap.get(workflowId).get(NUM_OF_QUERIES);
+    return get(workflowId, Type.QUERIES);
   }
 
   public static String getInfo() {
     StringBuilder stringBuilder = new StringBuilder();
-    for (String workflowRunId : perWorkflowIdMap.keySet()) {
+    for (String workflowRunId : counters.getWorkflowIds()) {
       stringBuilder.append("\n** Workflow ID: " + workflowRunId);
-      Map<String, Integer> info = perWorkflowIdMap.get(workflowRunId);
       stringBuilder.append(
-          "\n\tTotal Number of Workflow Exec: " + info.get(NUM_OF_WORKFLOW_EXECUTIONS));
+          "\n\tTotal Number of Workflow Exec: " + getNumOfWorkflowExecutions(workflowRunId));
       stringBuilder.append(
-          "\n\tTotal Number of Child Workflow Exec: " + info.get(NUM_OF_CHILD_WORKFLOW_EXECUTIONS));
+          "\n\tTotal Number of Child Workflow Exec: "
+              + getNumOfChildWorkflowExecutions(workflowRunId));
       stringBuilder.append(
-          "\n\tTotal Number of Activity Exec: " + info.get(NUM_OF_ACTIVITY_EXECUTIONS));
-      stringBuilder.append("\n\tTotal Number of Signals: " + info.get(NUM_OF_SIGNALS));
-      stringBuilder.append("\n\tTotal Number of Queries: " + info.get(NUM_OF_QUERIES));
+          "\n\tTotal Number of Activity Exec: " + getNumOfActivityExecutions(workflowRunId));
+      stringBuilder.append("\n\tTotal Number of Signals: " + getNumOfSignals(workflowRunId));
+      stringBuilder.append("\n\tTotal Number of Queries: " + getNumOfQueries(workflowRunId));
     }
 
     return stringBuilder.toString();
   }
 
-  /**
-   * Creates a default counter info map for a workflowid
-   *
-   * @return default counter info map
-   */
-  private static Map<String, Integer> getDefaultInfoMap() {
-    return Stream.of(
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_WORKFLOW_EXECUTIONS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_CHILD_WORKFLOW_EXECUTIONS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_ACTIVITY_EXECUTIONS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_SIGNALS, 0),
-            new AbstractMap.SimpleImmutableEntry<>(NUM_OF_QUERIES, 0))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  private static int get(String workflowId, Type type) {
+    return (int) counters.get(workflowId, type);
   }
 }
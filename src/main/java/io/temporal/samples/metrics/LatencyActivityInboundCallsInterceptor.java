@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.activity.ActivityInfo;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptorBase;
+import java.util.concurrent.TimeUnit;
+
+/** Records activity schedule-to-start and execution latencies. */
+public class LatencyActivityInboundCallsInterceptor extends ActivityInboundCallsInterceptorBase {
+
+  private final TimerCache scheduleToStart;
+  private final TimerCache execution;
+  private ActivityInfo activityInfo;
+
+  public LatencyActivityInboundCallsInterceptor(
+      ActivityInboundCallsInterceptor next, TimerCache scheduleToStart, TimerCache execution) {
+    super(next);
+    this.scheduleToStart = scheduleToStart;
+    this.execution = execution;
+  }
+
+  @Override
+  public void init(ActivityExecutionContext context) {
+    this.activityInfo = context.getInfo();
+    super.init(context);
+  }
+
+  @Override
+  public ActivityOutput execute(ActivityInput input) {
+    // The scheduled timestamp comes from the server clock, so this is only as precise as the
+    // clock skew between the server and the worker.
+    long waitedMillis =
+        System.currentTimeMillis() - activityInfo.getCurrentAttemptScheduledTimestamp();
+    scheduleToStart
+        .get(activityInfo.getWorkflowType(), activityInfo.getActivityType())
+        .record(Math.max(0, waitedMillis), TimeUnit.MILLISECONDS);
+
+    long startNanos = System.nanoTime();
+    ActivityOutput output;
+    try {
+      output = super.execute(input);
+    } catch (RuntimeException e) {
+      recordExecution(startNanos, "failed");
+      throw e;
+    }
+    recordExecution(startNanos, "completed");
+    return output;
+  }
+
+  private void recordExecution(long startNanos, String outcome) {
+    execution
+        .get(activityInfo.getActivityType(), outcome)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkerInterceptor;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptor;
+
+/**
+ * Records latency histograms of workflows and activities into a Micrometer registry: activity
+ * schedule-to-start and execution per activity type, and workflow execution, signal handling and
+ * query handling per workflow type. Workflow task schedule-to-start latency is already reported by
+ * the SDK through the metrics scope.
+ */
+public class LatencyWorkerInterceptor implements WorkerInterceptor {
+
+  static final String ACTIVITY_SCHEDULE_TO_START = "interceptor_activity_schedule_to_start_latency";
+  static final String ACTIVITY_EXECUTION = "interceptor_activity_execution_latency";
+  static final String WORKFLOW_EXECUTION = "interceptor_workflow_execution_latency";
+  static final String SIGNAL_HANDLING = "interceptor_signal_handling_latency";
+  static final String QUERY_HANDLING = "interceptor_query_handling_latency";
+
+  static final String WORKFLOW_TYPE_TAG = "workflow_type";
+  static final String ACTIVITY_TYPE_TAG = "activity_type";
+  static final String SIGNAL_NAME_TAG = "signal_name";
+  static final String QUERY_TYPE_TAG = "query_type";
+  static final String OUTCOME_TAG = "outcome";
+
+  private final TimerCache activityScheduleToStart;
+  private final TimerCache activityExecution;
+  private final TimerCache workflowExecution;
+  private final TimerCache signalHandling;
+  private final TimerCache queryHandling;
+
+  public LatencyWorkerInterceptor(MeterRegistry registry) {
+    activityScheduleToStart =
+        new TimerCache(registry, ACTIVITY_SCHEDULE_TO_START, WORKFLOW_TYPE_TAG, ACTIVITY_TYPE_TAG);
+    activityExecution =
+        new TimerCache(registry, ACTIVITY_EXECUTION, ACTIVITY_TYPE_TAG, OUTCOME_TAG);
+    workflowExecution =
+        new TimerCache(registry, WORKFLOW_EXECUTION, WORKFLOW_TYPE_TAG, OUTCOME_TAG);
+    signalHandling = new TimerCache(registry, SIGNAL_HANDLING, WORKFLOW_TYPE_TAG, SIGNAL_NAME_TAG);
+    queryHandling = new TimerCache(registry, QUERY_HANDLING, WORKFLOW_TYPE_TAG, QUERY_TYPE_TAG);
+  }
+
+  @Override
+  public WorkflowInboundCallsInterceptor interceptWorkflow(WorkflowInboundCallsInterceptor next) {
+    return new LatencyWorkflowInboundCallsInterceptor(
+        next, workflowExecution, signalHandling, queryHandling);
+  }
+
+  @Override
+  public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+    return new LatencyActivityInboundCallsInterceptor(
+        next, activityScheduleToStart, activityExecution);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptorBase;
+import io.temporal.workflow.Workflow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records workflow execution, signal handling and query handling latencies. Nothing is recorded
+ * while the workflow is replaying, so a workflow evicted from the cache isn't counted twice. Each
+ * run of a workflow that continues as new is recorded with the continued_as_new outcome.
+ */
+public class LatencyWorkflowInboundCallsInterceptor extends WorkflowInboundCallsInterceptorBase {
+
+  private final TimerCache workflowExecution;
+  private final TimerCache signalHandling;
+  private final TimerCache queryHandling;
+  private String workflowType;
+  private boolean continuedAsNew;
+
+  public LatencyWorkflowInboundCallsInterceptor(
+      WorkflowInboundCallsInterceptor next,
+      TimerCache workflowExecution,
+      TimerCache signalHandling,
+      TimerCache queryHandling) {
+    super(next);
+    this.workflowExecution = workflowExecution;
+    this.signalHandling = signalHandling;
+    this.queryHandling = queryHandling;
+  }
+
+  @Override
+  public void init(WorkflowOutboundCallsInterceptor outboundCalls) {
+    this.workflowType = Workflow.getInfo().getWorkflowType();
+    super.init(
+        new WorkflowOutboundCallsInterceptorBase(outboundCalls) {
+          @Override
+          public void continueAsNew(ContinueAsNewInput input) {
+            continuedAsNew = true;
+            super.continueAsNew(input);
+          }
+        });
+  }
+
+  @Override
+  public WorkflowOutput execute(WorkflowInput input) {
+    // Workflow time is deterministic, so the latency is the same when the execution is replayed
+    // on another worker, and covers the time the workflow spent blocked on timers and activities.
+    long startMillis = Workflow.currentTimeMillis();
+    WorkflowOutput output;
+    try {
+      output = super.execute(input);
+    } catch (RuntimeException e) {
+      recordExecution(startMillis, "failed");
+      throw e;
+    } catch (Error e) {
+      // Continue-as-new exits the workflow thread with an Error. So does the destruction of a
+      // workflow evicted from the cache, which is not an outcome of the run and isn't recorded.
+      if (continuedAsNew) {
+        recordExecution(startMillis, "continued_as_new");
+      }
+      throw e;
+    }
+    recordExecution(startMillis, "completed");
+    return output;
+  }
+
+  @Override
+  public void handleSignal(SignalInput input) {
+    if (Workflow.isReplaying()) {
+      super.handleSignal(input);
+      return;
+    }
+    long startNanos = System.nanoTime();
+    try {
+      super.handleSignal(input);
+    } finally {
+      signalHandling
+          .get(workflowType, input.getSignalName())
+          .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public QueryOutput handleQuery(QueryInput input) {
+    // Queries are never part of the history, so they are not replayed.
+    long startNanos = System.nanoTime();
+    try {
+      return super.handleQuery(input);
+    } finally {
+      queryHandling
+          .get(workflowType, input.getQueryName())
+          .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void recordExecution(long startMillis, String outcome) {
+    if (!Workflow.isReplaying()) {
+      workflowExecution
+          .get(workflowType, outcome)
+          .record(Workflow.currentTimeMillis() - startMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+}
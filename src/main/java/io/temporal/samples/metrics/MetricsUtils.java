@@ -19,38 +19,67 @@
 
 package io.temporal.samples.metrics;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import com.sun.net.httpserver.HttpServer;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetricsUtils {
 
+  public static final int DEFAULT_SCRAPE_THREADS = 2;
+  public static final long DEFAULT_SCRAPE_CACHE_TTL_MILLIS = 1000;
+
   /**
    * Starts HttpServer to expose a scrape endpoint. See
    * https://micrometer.io/docs/registry/prometheus for more info.
    */
   public static HttpServer startPrometheusScrapeEndpoint(
       PrometheusMeterRegistry registry, int port) {
+    return startPrometheusScrapeEndpoint(
+        registry, port, DEFAULT_SCRAPE_THREADS, DEFAULT_SCRAPE_CACHE_TTL_MILLIS);
+  }
+
+  /**
+   * Starts HttpServer to expose a scrape endpoint, served by its own threads so a slow scrape
+   * doesn't block the others. See {@link PrometheusScrapeHandler} for the caching and compression.
+   *
+   * @param port port to listen on, 0 picks a free port
+   * @param threads number of threads serving scrapes
+   * @param cacheTtlMillis how long a scrape is reused for concurrent requests, 0 disables caching
+   */
+  public static HttpServer startPrometheusScrapeEndpoint(
+      PrometheusMeterRegistry registry, int port, int threads, long cacheTtlMillis) {
     try {
       HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-      server.createContext(
-          "/prometheus",
-          httpExchange -> {
-            String response = registry.scrape();
-            httpExchange.sendResponseHeaders(200, response.getBytes(UTF_8).length);
-            try (OutputStream os = httpExchange.getResponseBody()) {
-              os.write(response.getBytes(UTF_8));
-            }
-          });
-
+      server.createContext("/prometheus", new PrometheusScrapeHandler(registry, cacheTtlMillis));
+      server.setExecutor(newScrapeExecutor(threads));
       server.start();
       return server;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
+
+  private static ThreadPoolExecutor newScrapeExecutor(int threads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Thread thread = new Thread(r, "prometheus-scrape-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    // HttpServer.stop doesn't shut down its executor, idle threads go away on their own instead
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
 }
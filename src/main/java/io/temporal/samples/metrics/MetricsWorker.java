@@ -40,6 +40,9 @@ public class MetricsWorker {
   public static final String DEFAULT_TASK_QUEUE_NAME = "metricsqueue";
 
   public static void main(String[] args) {
+    // Worker tuning, pass a properties file to override metrics/worker.properties
+    WorkerConfig config =
+        WorkerConfig.load(args.length > 0 ? args[0] : WorkerConfig.DEFAULT_CONFIG_FILE);
 
     // Set up prometheus registry and stats reported
     PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
@@ -56,7 +59,8 @@ public class MetricsWorker {
             .reporter(new MicrometerClientStatsReporter(registry))
             .reportEvery(com.uber.m3.util.Duration.ofSeconds(1));
     // Start the prometheus scrape endpoint
-    HttpServer scrapeEndpoint = MetricsUtils.startPrometheusScrapeEndpoint(registry, 8080);
+    HttpServer scrapeEndpoint =
+        MetricsUtils.startPrometheusScrapeEndpoint(registry, config.getScrapePort());
     // Stopping the worker will stop the http server that exposes the
     // scrape endpoint.
     Runtime.getRuntime().addShutdownHook(new Thread(() -> scrapeEndpoint.stop(1)));
@@ -66,14 +70,25 @@ public class MetricsWorker {
 
     WorkflowServiceStubs service = WorkflowServiceStubs.newServiceStubs(stubOptions);
     WorkflowClient client = WorkflowClient.newInstance(service);
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    // Record workflow and activity latency histograms into the same registry
+    WorkerFactory factory =
+        config
+            .newWorkerFactoryBuilder(client)
+            .setMeterRegistry(registry)
+            .setWorkerInterceptors(new LatencyWorkerInterceptor(registry))
+            .build();
+    // Slot utilization derived from the SDK metrics, see the README for the rate based ratios
+    WorkerSaturationMetrics.register(registry, config);
 
-    Worker worker = factory.newWorker(DEFAULT_TASK_QUEUE_NAME);
+    Worker worker = factory.newWorker(config.getTaskQueue(), config.newWorkerOptions());
     worker.registerWorkflowImplementationTypes(MetricsWorkflowImpl.class);
     worker.registerActivitiesImplementations(new MetricsActivitiesImpl());
 
     factory.start();
 
-    System.out.println("Workers metrics are available at http://localhost:8080/prometheus");
+    System.out.println(
+        "Workers metrics are available at http://localhost:"
+            + config.getScrapePort()
+            + "/prometheus");
   }
 }
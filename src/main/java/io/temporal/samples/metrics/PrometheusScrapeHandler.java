@@ -0,0 +1,154 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the Prometheus scrape of a registry. The scrape is written straight to a byte buffer
+ * instead of a {@code String}, and gzip compressed when the client accepts it. Scrapes arriving
+ * within {@code cacheTtlMillis} of each other share one snapshot, so concurrent scrapers don't
+ * each walk all the meters; a TTL of 0 disables the cache and streams every scrape to the client.
+ */
+public class PrometheusScrapeHandler implements HttpHandler {
+
+  private final PrometheusMeterRegistry registry;
+  private final long cacheTtlNanos;
+  private final Object lock = new Object();
+  private volatile Snapshot snapshot;
+
+  public PrometheusScrapeHandler(PrometheusMeterRegistry registry, long cacheTtlMillis) {
+    if (cacheTtlMillis < 0) {
+      throw new IllegalArgumentException("cacheTtlMillis must not be negative: " + cacheTtlMillis);
+    }
+    this.registry = registry;
+    this.cacheTtlNanos = cacheTtlMillis * 1_000_000;
+  }
+
+  @Override
+  public void handle(HttpExchange httpExchange) throws IOException {
+    try {
+      boolean gzip = acceptsGzip(httpExchange);
+      httpExchange.getResponseHeaders().set("Content-Type", TextFormat.CONTENT_TYPE_004);
+      if (gzip) {
+        httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      }
+      if (cacheTtlNanos == 0) {
+        // chunked response, the size isn't known before the scrape is done
+        httpExchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = httpExchange.getResponseBody()) {
+          scrape(gzip ? new GZIPOutputStream(os) : os);
+        }
+        return;
+      }
+      byte[] body = gzip ? currentSnapshot().gzipped() : currentSnapshot().plain;
+      httpExchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = httpExchange.getResponseBody()) {
+        os.write(body);
+      }
+    } finally {
+      httpExchange.close();
+    }
+  }
+
+  private Snapshot currentSnapshot() throws IOException {
+    Snapshot current = snapshot;
+    if (current != null && !current.isExpired()) {
+      return current;
+    }
+    // only one thread scrapes, the others wait for its snapshot
+    synchronized (lock) {
+      current = snapshot;
+      if (current == null || current.isExpired()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bufferSize(current));
+        scrape(out);
+        current = new Snapshot(out.toByteArray(), System.nanoTime() + cacheTtlNanos);
+        snapshot = current;
+      }
+      return current;
+    }
+  }
+
+  private void scrape(OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, UTF_8);
+    registry.scrape(writer);
+    // finishes the gzip stream as well
+    writer.close();
+  }
+
+  private static int bufferSize(Snapshot previous) {
+    // scrapes rarely change size, start from the previous one to avoid growing the buffer
+    return previous == null ? 64 * 1024 : previous.plain.length + previous.plain.length / 8;
+  }
+
+  private static boolean acceptsGzip(HttpExchange httpExchange) {
+    List<String> acceptEncodings = httpExchange.getRequestHeaders().get("Accept-Encoding");
+    if (acceptEncodings == null) {
+      return false;
+    }
+    for (String acceptEncoding : acceptEncodings) {
+      if (acceptEncoding.contains("gzip")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Snapshot {
+    private final byte[] plain;
+    private final long expiresAtNanos;
+    private volatile byte[] gzipped;
+
+    private Snapshot(byte[] plain, long expiresAtNanos) {
+      this.plain = plain;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+
+    private boolean isExpired() {
+      return System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    private byte[] gzipped() throws IOException {
+      byte[] result = gzipped;
+      if (result == null) {
+        // racing threads may both compress, the results are equal
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+          gzip.write(plain);
+        }
+        result = out.toByteArray();
+        gzipped = result;
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Timers of one metric, looked up by the values of its two tags. The timer of a combination is
+ * registered once, later lookups are two map reads without building tags or keys, so recording a
+ * latency doesn't allocate. The tag values should have a low cardinality, such as type names.
+ */
+final class TimerCache {
+
+  private final MeterRegistry registry;
+  private final String name;
+  private final String firstTagKey;
+  private final String secondTagKey;
+  private final ConcurrentMap<String, ConcurrentMap<String, Timer>> timers =
+      new ConcurrentHashMap<>();
+
+  TimerCache(MeterRegistry registry, String name, String firstTagKey, String secondTagKey) {
+    this.registry = registry;
+    this.name = name;
+    this.firstTagKey = firstTagKey;
+    this.secondTagKey = secondTagKey;
+  }
+
+  Timer get(String firstTagValue, String secondTagValue) {
+    ConcurrentMap<String, Timer> byFirst = timers.get(firstTagValue);
+    if (byFirst == null) {
+      byFirst = timers.computeIfAbsent(firstTagValue, k -> new ConcurrentHashMap<>());
+    }
+    Timer timer = byFirst.get(secondTagValue);
+    if (timer == null) {
+      timer = byFirst.computeIfAbsent(secondTagValue, k -> register(firstTagValue, k));
+    }
+    return timer;
+  }
+
+  private Timer register(String firstTagValue, String secondTagValue) {
+    return Timer.builder(name)
+        .tag(firstTagKey, firstTagValue)
+        .tag(secondTagKey, secondTagValue)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofMinutes(10))
+        .register(registry);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
+import io.temporal.worker.WorkerOptions;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.PropertiesConfiguration;
+
+/**
+ * Worker settings read from a properties file, see {@code metrics/worker.properties}. Settings that
+ * are not present fall back to the defaults, for the workflow cache those of {@link
+ * WorkerFactoryBuilder}.
+ */
+public class WorkerConfig {
+
+  public static final String DEFAULT_CONFIG_FILE = "metrics/worker.properties";
+
+  public static final String DEFAULT_TASK_QUEUE = MetricsWorker.DEFAULT_TASK_QUEUE_NAME;
+  public static final int DEFAULT_WORKFLOW_POLL_THREAD_COUNT = 2;
+  public static final int DEFAULT_ACTIVITY_POLL_THREAD_COUNT = 5;
+  public static final int DEFAULT_MAX_CONCURRENT_EXECUTION_SIZE = 200;
+  public static final int DEFAULT_SCRAPE_PORT = 8080;
+
+  private final String taskQueue;
+  private final int workflowPollThreadCount;
+  private final int activityPollThreadCount;
+  private final int maxConcurrentWorkflowTaskExecutionSize;
+  private final int maxConcurrentActivityExecutionSize;
+  private final int maxConcurrentLocalActivityExecutionSize;
+  private final int workflowCacheSize;
+  private final int maxWorkflowThreadCount;
+  private final int scrapePort;
+
+  public WorkerConfig(Configuration configuration) {
+    taskQueue = configuration.getString("taskQueue", DEFAULT_TASK_QUEUE);
+    workflowPollThreadCount =
+        configuration.getInt("workflowPollThreadCount", DEFAULT_WORKFLOW_POLL_THREAD_COUNT);
+    activityPollThreadCount =
+        configuration.getInt("activityPollThreadCount", DEFAULT_ACTIVITY_POLL_THREAD_COUNT);
+    maxConcurrentWorkflowTaskExecutionSize =
+        configuration.getInt(
+            "maxConcurrentWorkflowTaskExecutionSize", DEFAULT_MAX_CONCURRENT_EXECUTION_SIZE);
+    maxConcurrentActivityExecutionSize =
+        configuration.getInt(
+            "maxConcurrentActivityExecutionSize", DEFAULT_MAX_CONCURRENT_EXECUTION_SIZE);
+    maxConcurrentLocalActivityExecutionSize =
+        configuration.getInt(
+            "maxConcurrentLocalActivityExecutionSize", DEFAULT_MAX_CONCURRENT_EXECUTION_SIZE);
+    // the same defaults as the other samples, which follow the temporal.* system properties
+    workflowCacheSize =
+        configuration.getInt("workflowCacheSize", WorkerFactoryBuilder.defaultWorkflowCacheSize());
+    maxWorkflowThreadCount =
+        configuration.getInt(
+            "maxWorkflowThreadCount", WorkerFactoryBuilder.defaultMaxWorkflowThreadCount());
+    scrapePort = configuration.getInt("scrapePort", DEFAULT_SCRAPE_PORT);
+  }
+
+  /**
+   * Loads the configuration from a file path, or from the classpath if there is no such file.
+   *
+   * @throws IllegalArgumentException if the file can't be found or parsed
+   */
+  public static WorkerConfig load(String fileName) {
+    try {
+      return new WorkerConfig(new PropertiesConfiguration(fileName));
+    } catch (ConfigurationException e) {
+      throw new IllegalArgumentException("Unable to load worker configuration " + fileName, e);
+    }
+  }
+
+  public WorkerOptions newWorkerOptions() {
+    return WorkerOptions.newBuilder()
+        .setWorkflowPollThreadCount(workflowPollThreadCount)
+        .setActivityPollThreadCount(activityPollThreadCount)
+        .setMaxConcurrentWorkflowTaskExecutionSize(maxConcurrentWorkflowTaskExecutionSize)
+        .setMaxConcurrentActivityExecutionSize(maxConcurrentActivityExecutionSize)
+        .setMaxConcurrentLocalActivityExecutionSize(maxConcurrentLocalActivityExecutionSize)
+        .build();
+  }
+
+  public WorkerFactoryBuilder newWorkerFactoryBuilder(WorkflowClient client) {
+    return WorkerFactoryBuilder.newBuilder(client)
+        .setWorkflowCacheSize(workflowCacheSize)
+        .setMaxWorkflowThreadCount(maxWorkflowThreadCount);
+  }
+
+  public String getTaskQueue() {
+    return taskQueue;
+  }
+
+  public int getWorkflowPollThreadCount() {
+    return workflowPollThreadCount;
+  }
+
+  public int getActivityPollThreadCount() {
+    return activityPollThreadCount;
+  }
+
+  public int getMaxConcurrentWorkflowTaskExecutionSize() {
+    return maxConcurrentWorkflowTaskExecutionSize;
+  }
+
+  public int getMaxConcurrentActivityExecutionSize() {
+    return maxConcurrentActivityExecutionSize;
+  }
+
+  public int getMaxConcurrentLocalActivityExecutionSize() {
+    return maxConcurrentLocalActivityExecutionSize;
+  }
+
+  public int getWorkflowCacheSize() {
+    return workflowCacheSize;
+  }
+
+  public int getMaxWorkflowThreadCount() {
+    return maxWorkflowThreadCount;
+  }
+
+  public int getScrapePort() {
+    return scrapePort;
+  }
+}
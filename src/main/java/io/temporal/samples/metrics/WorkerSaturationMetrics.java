@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.temporal.serviceclient.MetricsTag;
+import io.temporal.worker.MetricsType;
+import java.util.Collection;
+
+/**
+ * Gauges derived from the SDK worker metrics that show whether a worker is sized right.
+ * {@value #SLOT_UTILIZATION} is the share of task slots in use per worker type. Close to 1 means
+ * tasks wait for a slot, raise the max concurrent executions or add workers.
+ *
+ * <p>Ratios over time, like the sticky cache hit ratio or the mean poll latency, are left to the
+ * monitoring system: a gauge computing them since its previous read would depend on how often and
+ * by how many scrapers it is read. The SDK exports the cumulative counters and timers they are
+ * computed from, see the README for the PromQL.
+ *
+ * <p>The SDK metrics have to be reported to the same registry, through a tally scope with a {@code
+ * MicrometerClientStatsReporter}. Gauges have no value until the SDK reported their inputs.
+ */
+public final class WorkerSaturationMetrics {
+
+  static final String SLOT_UTILIZATION = "worker_slot_utilization";
+
+  private WorkerSaturationMetrics() {}
+
+  public static void register(MeterRegistry registry, WorkerConfig config) {
+    registerSlotUtilization(
+        registry, "WorkflowWorker", config.getMaxConcurrentWorkflowTaskExecutionSize());
+    registerSlotUtilization(
+        registry, "ActivityWorker", config.getMaxConcurrentActivityExecutionSize());
+    registerSlotUtilization(
+        registry, "LocalActivityWorker", config.getMaxConcurrentLocalActivityExecutionSize());
+  }
+
+  private static void registerSlotUtilization(
+      MeterRegistry registry, String workerType, int maxConcurrentExecutions) {
+    Gauge.builder(
+            SLOT_UTILIZATION,
+            registry,
+            r -> {
+              Collection<Gauge> available =
+                  r.find(MetricsType.WORKER_TASK_SLOTS_AVAILABLE)
+                      .tag(MetricsTag.WORKER_TYPE, workerType)
+                      .gauges();
+              if (available.isEmpty()) {
+                return Double.NaN;
+              }
+              double free = 0;
+              for (Gauge gauge : available) {
+                free += gauge.value();
+              }
+              return 1 - free / ((double) maxConcurrentExecutions * available.size());
+            })
+        .tag(MetricsTag.WORKER_TYPE, workerType)
+        .register(registry);
+  }
+}
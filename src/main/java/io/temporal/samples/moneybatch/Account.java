@@ -20,6 +20,7 @@
 package io.temporal.samples.moneybatch;
 
 import io.temporal.activity.ActivityInterface;
+import java.util.List;
 
 @ActivityInterface
 public interface Account {
@@ -27,4 +28,7 @@ public interface Account {
   void deposit(String accountId, String referenceId, int amountCents);
 
   void withdraw(String accountId, String referenceId, int amountCents);
+
+  /** Executes a batch of withdrawals in a single activity */
+  void withdrawAll(List<Withdrawal> withdrawals);
 }
@@ -20,6 +20,7 @@
 package io.temporal.samples.moneybatch;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -33,7 +34,7 @@ public class AccountActivityWorker {
     WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
     WorkflowClient client = WorkflowClient.newInstance(service);
 
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     Worker worker = factory.newWorker(TASK_QUEUE);
 
     Account account = new AccountImpl();
@@ -19,6 +19,8 @@
 
 package io.temporal.samples.moneybatch;
 
+import java.util.List;
+
 public class AccountImpl implements Account {
   @Override
   public void deposit(String accountId, String referenceId, int amountCents) {
@@ -34,4 +36,13 @@ public class AccountImpl implements Account {
         "Withdraw to %s of %d cents requested. ReferenceId=%s\n",
         accountId, amountCents, referenceId);
   }
+
+  @Override
+  public void withdrawAll(List<Withdrawal> withdrawals) {
+    System.out.printf("Batch of %d withdrawals requested\n", withdrawals.size());
+    for (Withdrawal withdrawal : withdrawals) {
+      withdraw(
+          withdrawal.getAccountId(), withdrawal.getReferenceId(), withdrawal.getAmountCents());
+    }
+  }
 }
@@ -20,6 +20,7 @@
 package io.temporal.samples.moneybatch;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -30,10 +31,17 @@ public class AccountTransferWorker {
   public static void main(String[] args) {
     WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
     WorkflowClient client = WorkflowClient.newInstance(service);
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
 
     Worker worker = factory.newWorker(AccountActivityWorker.TASK_QUEUE);
-    worker.registerWorkflowImplementationTypes(AccountTransferWorkflowImpl.class);
+    // Execute withdrawals in micro-batches instead of one activity per withdrawal
+    worker.addWorkflowImplementationFactory(
+        AccountTransferWorkflow.class,
+        () ->
+            new AccountTransferWorkflowImpl(
+                AccountTransferWorkflowImpl.DEFAULT_MAX_BATCH_SIZE,
+                AccountTransferWorkflowImpl.DEFAULT_BATCH_WINDOW,
+                AccountTransferWorkflowImpl.DEFAULT_MAX_HISTORY_LENGTH));
 
     factory.start();
     System.out.println("Worker started for task queue: " + AccountActivityWorker.TASK_QUEUE);
@@ -27,8 +27,13 @@ import io.temporal.workflow.WorkflowMethod;
 @WorkflowInterface
 public interface AccountTransferWorkflow {
 
+  /**
+   * Deposits the sum of batchSize withdrawals to the account.
+   *
+   * @param state state carried over continue-as-new, null when starting a new batch
+   */
   @WorkflowMethod
-  void deposit(String toAccountId, int batchSize);
+  void deposit(String toAccountId, int batchSize, TransferState state);
 
   @SignalMethod
   void withdraw(String fromAccountId, String referenceId, int amountCents);
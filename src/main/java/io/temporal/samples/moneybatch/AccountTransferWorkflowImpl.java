@@ -19,15 +19,31 @@
 
 package io.temporal.samples.moneybatch;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import io.temporal.activity.ActivityOptions;
 import io.temporal.common.RetryOptions;
 import io.temporal.workflow.Workflow;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class AccountTransferWorkflowImpl implements AccountTransferWorkflow {
 
+  /** Max withdrawals executed by a single withdrawAll activity when batching is enabled */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+  /** How long to wait for a withdrawal batch to fill up before executing it */
+  public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofSeconds(1);
+
+  /** History length (number of events) of a run after which it continues as new */
+  public static final int DEFAULT_MAX_HISTORY_LENGTH = 10_000;
+
+  private static final HashFunction referenceHash = Hashing.murmur3_128();
+
   private final ActivityOptions options =
       ActivityOptions.newBuilder()
           .setStartToCloseTimeout(Duration.ofSeconds(5))
@@ -40,25 +56,82 @@ public class AccountTransferWorkflowImpl implements AccountTransferWorkflow {
 
   private final Account account = Workflow.newActivityStub(Account.class, options);
 
-  private Set<String> references = new HashSet<>();
+  private final int maxBatchSize;
+  private final Duration batchWindow;
+  private final int maxHistoryLength;
+
+  // hashes of the reference ids seen so far, used to drop duplicate withdrawals
+  private Set<Long> references = new HashSet<>();
+  private List<Withdrawal> pending = new ArrayList<>();
   private int balance;
   private int count;
+  // decided by whichever of deposit and the first withdraw signal runs first
+  private Integer withdrawalsVersion;
+
+  /** Executes every withdrawal as its own activity */
+  public AccountTransferWorkflowImpl() {
+    this(1, Duration.ZERO, DEFAULT_MAX_HISTORY_LENGTH);
+  }
+
+  /**
+   * Accumulates withdrawals into micro-batches of up to maxBatchSize withdrawals, or whatever
+   * arrived within batchWindow, and executes each batch with one withdrawAll activity. Register it
+   * with Worker.addWorkflowImplementationFactory. All workers must use the same values, as they
+   * affect the workflow history.
+   *
+   * @param maxHistoryLength number of history events after which the run continues as new
+   */
+  public AccountTransferWorkflowImpl(int maxBatchSize, Duration batchWindow, int maxHistoryLength) {
+    this.maxBatchSize = maxBatchSize;
+    this.batchWindow = batchWindow;
+    this.maxHistoryLength = maxHistoryLength;
+  }
 
   @Override
-  public void deposit(String toAccount, int batchSize) {
-    Workflow.await(() -> count == batchSize);
+  public void deposit(String toAccountId, int batchSize, TransferState state) {
+    if (!queuesWithdrawals()) {
+      Workflow.await(() -> count == batchSize);
+      String referenceId = Workflow.randomUUID().toString();
+      account.deposit(toAccountId, referenceId, balance);
+      return;
+    }
+    if (state != null) {
+      restore(state);
+    }
+    while (count < batchSize) {
+      Workflow.await(() -> !pending.isEmpty());
+      if (maxBatchSize > 1 && !batchWindow.isZero()) {
+        // give the batch a chance to fill up
+        Workflow.await(
+            batchWindow,
+            () -> pending.size() >= maxBatchSize || count + pending.size() >= batchSize);
+      }
+      withdraw(nextBatch());
+
+      // keep history size, and so replay time, bounded for large batches
+      if (count < batchSize && Workflow.getInfo().getHistoryLength() >= maxHistoryLength) {
+        AccountTransferWorkflow continueAsNew =
+            Workflow.newContinueAsNewStub(AccountTransferWorkflow.class);
+        continueAsNew.deposit(toAccountId, batchSize, snapshot());
+        return;
+      }
+    }
     String referenceId = Workflow.randomUUID().toString();
-    account.deposit(toAccount, referenceId, balance);
+    account.deposit(toAccountId, referenceId, balance);
   }
 
   @Override
   public void withdraw(String fromAccountId, String referenceId, int amountCents) {
-    if (!references.add(referenceId)) {
+    if (!references.add(digest(referenceId))) {
       return; // duplicate
     }
-    account.withdraw(fromAccountId, referenceId, amountCents);
-    balance += amountCents;
-    count++;
+    if (!queuesWithdrawals()) {
+      account.withdraw(fromAccountId, referenceId, amountCents);
+      balance += amountCents;
+      count++;
+      return;
+    }
+    pending.add(new Withdrawal(fromAccountId, referenceId, amountCents));
   }
 
   @Override
@@ -70,4 +143,59 @@ public class AccountTransferWorkflowImpl implements AccountTransferWorkflow {
   public int getCount() {
     return count;
   }
+
+  /**
+   * Executions started before withdrawals were queued for the workflow method executed each of them
+   * from the withdraw signal handler, and keep doing so to replay.
+   */
+  private boolean queuesWithdrawals() {
+    if (withdrawalsVersion == null) {
+      withdrawalsVersion = Workflow.getVersion("queuedWithdrawals", Workflow.DEFAULT_VERSION, 1);
+    }
+    return withdrawalsVersion == 1;
+  }
+
+  private List<Withdrawal> nextBatch() {
+    List<Withdrawal> batchSource = pending.subList(0, Math.min(maxBatchSize, pending.size()));
+    List<Withdrawal> batch = new ArrayList<>(batchSource);
+    batchSource.clear();
+    return batch;
+  }
+
+  private void withdraw(List<Withdrawal> batch) {
+    if (batch.size() == 1) {
+      Withdrawal withdrawal = batch.get(0);
+      account.withdraw(
+          withdrawal.getAccountId(), withdrawal.getReferenceId(), withdrawal.getAmountCents());
+    } else {
+      account.withdrawAll(batch);
+    }
+    for (Withdrawal withdrawal : batch) {
+      balance += withdrawal.getAmountCents();
+    }
+    count += batch.size();
+  }
+
+  private TransferState snapshot() {
+    long[] digests = new long[references.size()];
+    int i = 0;
+    for (Long digest : references) {
+      digests[i++] = digest;
+    }
+    return new TransferState(balance, count, digests, new ArrayList<>(pending));
+  }
+
+  private void restore(TransferState state) {
+    // merge, as signals of this run may have been delivered already
+    balance += state.getBalance();
+    count += state.getCount();
+    for (long digest : TransferState.decodeReferences(state.getReferences())) {
+      references.add(digest);
+    }
+    pending.addAll(0, state.getPending());
+  }
+
+  private static long digest(String referenceId) {
+    return referenceHash.hashString(referenceId, StandardCharsets.UTF_8).asLong();
+  }
 }
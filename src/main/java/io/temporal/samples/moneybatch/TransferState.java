@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.moneybatch;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * State of a batch carried over continue-as-new. Reference ids already seen are kept as their 64
+ * bit hashes, sorted and delta encoded as variable length integers, which takes about 7 bytes per
+ * reference id (instead of 36 characters for a UUID).
+ */
+public class TransferState {
+  private int balance;
+  private int count;
+  private byte[] references = new byte[0];
+  private List<Withdrawal> pending = new ArrayList<>();
+
+  public TransferState() {}
+
+  public TransferState(int balance, int count, long[] referenceDigests, List<Withdrawal> pending) {
+    this.balance = balance;
+    this.count = count;
+    this.references = encodeReferences(referenceDigests);
+    this.pending = pending;
+  }
+
+  public int getBalance() {
+    return balance;
+  }
+
+  public void setBalance(int balance) {
+    this.balance = balance;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+  /** Encoded reference id hashes, see {@link #decodeReferences(byte[])} */
+  public byte[] getReferences() {
+    return references;
+  }
+
+  public void setReferences(byte[] references) {
+    this.references = references;
+  }
+
+  /** Withdrawals received but not yet executed */
+  public List<Withdrawal> getPending() {
+    return pending;
+  }
+
+  public void setPending(List<Withdrawal> pending) {
+    this.pending = pending;
+  }
+
+  static byte[] encodeReferences(long[] referenceDigests) {
+    long[] sorted = referenceDigests.clone();
+    Arrays.sort(sorted);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(sorted.length * 8);
+    long previous = 0;
+    for (long digest : sorted) {
+      // deltas of sorted values are non-negative when treated as unsigned
+      long delta = digest - previous;
+      while ((delta & ~0x7FL) != 0) {
+        out.write((int) ((delta & 0x7F) | 0x80));
+        delta >>>= 7;
+      }
+      out.write((int) delta);
+      previous = digest;
+    }
+    return out.toByteArray();
+  }
+
+  static long[] decodeReferences(byte[] references) {
+    long[] digests = new long[references.length];
+    int count = 0;
+    long previous = 0;
+    int i = 0;
+    while (i < references.length) {
+      long delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = references[i++];
+        delta |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      previous += delta;
+      digests[count++] = previous;
+    }
+    return Arrays.copyOf(digests, count);
+  }
+}
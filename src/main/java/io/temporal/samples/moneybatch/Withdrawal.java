@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.moneybatch;
+
+/** A single withdrawal requested through the withdraw signal */
+public class Withdrawal {
+  private String accountId;
+  private String referenceId;
+  private int amountCents;
+
+  public Withdrawal() {}
+
+  public Withdrawal(String accountId, String referenceId, int amountCents) {
+    this.accountId = accountId;
+    this.referenceId = referenceId;
+    this.amountCents = amountCents;
+  }
+
+  public String getAccountId() {
+    return accountId;
+  }
+
+  public void setAccountId(String accountId) {
+    this.accountId = accountId;
+  }
+
+  public String getReferenceId() {
+    return referenceId;
+  }
+
+  public void setReferenceId(String referenceId) {
+    this.referenceId = referenceId;
+  }
+
+  public int getAmountCents() {
+    return amountCents;
+  }
+
+  public void setAmountCents(int amountCents) {
+    this.amountCents = amountCents;
+  }
+}
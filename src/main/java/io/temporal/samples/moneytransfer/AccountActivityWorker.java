@@ -20,6 +20,7 @@
 package io.temporal.samples.moneytransfer;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -36,7 +37,7 @@ public class AccountActivityWorker {
     WorkflowClient client = WorkflowClient.newInstance(service);
 
     // worker factory that can be used to create workers for specific task queues
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     Worker worker = factory.newWorker(TASK_QUEUE);
     Account account = new AccountImpl();
     worker.registerActivitiesImplementations(account);
@@ -22,6 +22,7 @@ package io.temporal.samples.moneytransfer;
 import static io.temporal.samples.moneytransfer.AccountActivityWorker.TASK_QUEUE;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -37,7 +38,7 @@ public class AccountTransferWorker {
     WorkflowClient client = WorkflowClient.newInstance(service);
 
     // worker factory that can be used to create workers for specific task queues
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     Worker workerForCommonTaskQueue = factory.newWorker(TASK_QUEUE);
     workerForCommonTaskQueue.registerWorkflowImplementationTypes(AccountTransferWorkflowImpl.class);
     // Start all workers created by this factory.
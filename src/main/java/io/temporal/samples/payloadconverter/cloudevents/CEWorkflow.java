@@ -24,15 +24,31 @@ import io.temporal.workflow.QueryMethod;
 import io.temporal.workflow.SignalMethod;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
+import java.util.List;
 
 @WorkflowInterface
 public interface CEWorkflow {
+  /**
+   * @param cloudEvent first event
+   * @param aggregate aggregate of the previous runs when continued as new, null otherwise. The
+   *     first event is then the last event of the previous run and is already part of it.
+   */
   @WorkflowMethod
-  void exec(CloudEvent cloudEvent);
+  void exec(CloudEvent cloudEvent, EventAggregate aggregate);
 
   @SignalMethod
   void addEvent(CloudEvent cloudEvent);
 
   @QueryMethod
   CloudEvent getLastEvent();
+
+  /**
+   * Returns up to maxCount of the most recent events, starting at the given sequence number (the
+   * number of events received before it). Events that are no longer in the window are skipped.
+   */
+  @QueryMethod
+  List<CloudEvent> getEvents(long fromSequence, int maxCount);
+
+  @QueryMethod
+  EventAggregate getAggregate();
 }
@@ -21,28 +21,91 @@ package io.temporal.samples.payloadconverter.cloudevents;
 
 import io.cloudevents.CloudEvent;
 import io.temporal.workflow.Workflow;
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Keeps the most recent events in a bounded window and an aggregate over all of them. When the
+ * history grows too long the workflow continues as new with the aggregate and the last event, so
+ * neither the memory nor the history size grows with the number of events.
+ */
 public class CEWorkflowImpl implements CEWorkflow {
 
-  private List<CloudEvent> eventList = new ArrayList<>();
+  /** Number of most recent events kept for queries */
+  public static final int DEFAULT_WINDOW_CAPACITY = 1_000;
+
+  /** History length (number of events) of a run after which it continues as new */
+  public static final int DEFAULT_MAX_HISTORY_LENGTH = 10_000;
+
+  /** Number of events after which the workflow completes */
+  public static final long DEFAULT_EVENT_COUNT = 10;
+
+  private final int windowCapacity;
+  private final int maxHistoryLength;
+  private final long eventCount;
+
+  // Signals can be delivered before the workflow method starts, so these are ready from the start.
+  private EventWindow window;
+  private EventAggregate aggregate = new EventAggregate();
+
+  public CEWorkflowImpl() {
+    this(DEFAULT_WINDOW_CAPACITY, DEFAULT_MAX_HISTORY_LENGTH, DEFAULT_EVENT_COUNT);
+  }
+
+  /**
+   * @param windowCapacity number of most recent events kept for queries
+   * @param maxHistoryLength history length after which a run continues as new
+   * @param eventCount number of events after which the workflow completes
+   */
+  public CEWorkflowImpl(int windowCapacity, int maxHistoryLength, long eventCount) {
+    this.windowCapacity = windowCapacity;
+    this.maxHistoryLength = maxHistoryLength;
+    this.eventCount = eventCount;
+    this.window = new EventWindow(windowCapacity, 0);
+  }
 
   @Override
-  public void exec(CloudEvent cloudEvent) {
+  public void exec(CloudEvent cloudEvent, EventAggregate aggregate) {
+    if (aggregate == null) {
+      addEvent(cloudEvent);
+    } else {
+      // Continue the sequence of the previous run. Its last event was already counted, events
+      // signaled to this run before this method started are appended after it.
+      List<CloudEvent> signaled = window.getRange(0, window.size());
+      aggregate.merge(this.aggregate);
+      this.aggregate = aggregate;
+      this.window = new EventWindow(windowCapacity, aggregate.getCount() - signaled.size() - 1);
+      window.add(cloudEvent);
+      signaled.forEach(window::add);
+    }
 
-    eventList.add(cloudEvent);
+    Workflow.await(
+        () ->
+            this.aggregate.getCount() >= eventCount
+                || Workflow.getInfo().getHistoryLength() >= maxHistoryLength);
 
-    Workflow.await(() -> eventList.size() == 10);
+    if (this.aggregate.getCount() < eventCount) {
+      Workflow.newContinueAsNewStub(CEWorkflow.class).exec(window.getLast(), this.aggregate);
+    }
   }
 
   @Override
   public void addEvent(CloudEvent cloudEvent) {
-    eventList.add(cloudEvent);
+    window.add(cloudEvent);
+    aggregate.add(cloudEvent);
   }
 
   @Override
   public CloudEvent getLastEvent() {
-    return eventList.get(eventList.size() - 1);
+    return window.getLast();
+  }
+
+  @Override
+  public List<CloudEvent> getEvents(long fromSequence, int maxCount) {
+    return window.getRange(fromSequence, maxCount);
+  }
+
+  @Override
+  public EventAggregate getAggregate() {
+    return aggregate;
   }
 }
@@ -19,56 +19,313 @@
 
 package io.temporal.samples.payloadconverter.cloudevents;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.cloudevents.CloudEvent;
+import io.cloudevents.CloudEventData;
+import io.cloudevents.SpecVersion;
+import io.cloudevents.core.builder.CloudEventBuilder;
 import io.cloudevents.core.format.EventFormat;
 import io.cloudevents.core.format.EventSerializationException;
 import io.cloudevents.core.provider.EventFormatProvider;
 import io.cloudevents.jackson.JsonFormat;
 import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.ByteArrayPayloadConverter;
+import io.temporal.common.converter.DataConverter;
 import io.temporal.common.converter.DataConverterException;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.common.converter.JacksonJsonPayloadConverter;
+import io.temporal.common.converter.NullPayloadConverter;
 import io.temporal.common.converter.PayloadConverter;
+import io.temporal.common.converter.ProtobufJsonPayloadConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 
-/** Payload converter specific to CloudEvents format */
+/**
+ * Payload converter specific to CloudEvents format. Events are serialized either with the JSON
+ * event format, or with a compact binary layout that stores the data as is instead of base64
+ * encoding it inside a JSON document.
+ */
 public class CloudEventsPayloadConverter implements PayloadConverter {
 
+  public enum Encoding {
+    /** JSON event format, under the same encoding type as the default JSON converter */
+    JSON,
+    /**
+     * Length-prefixed attributes followed by the raw data. The data of deserialized events is
+     * always exposed as bytes.
+     */
+    BINARY
+  }
+
+  static final String BINARY_ENCODING_TYPE = "binary/cloudevents";
+
+  // 2: strings as length-prefixed UTF-8 instead of modified UTF-8
+  private static final int BINARY_FORMAT_VERSION = 2;
+
+  // extension value types in the binary layout
+  private static final byte EXTENSION_STRING = 0;
+  private static final byte EXTENSION_INTEGER = 1;
+  private static final byte EXTENSION_BOOLEAN = 2;
+  private static final byte EXTENSION_URI = 3;
+  private static final byte EXTENSION_TIME = 4;
+  private static final byte EXTENSION_BINARY = 5;
+
   private EventFormat CEFormat =
       EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
 
+  // Converts values that are not CloudEvents, such as lists of events or state objects.
+  private static final JacksonJsonPayloadConverter jsonConverter =
+      new JacksonJsonPayloadConverter(newObjectMapper());
+
+  private final Encoding encoding;
+  private final ByteString encodingType;
+
+  public CloudEventsPayloadConverter() {
+    this(Encoding.JSON);
+  }
+
+  public CloudEventsPayloadConverter(Encoding encoding) {
+    this.encoding = encoding;
+    this.encodingType = ByteString.copyFrom(getEncodingType(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a data converter that uses a CloudEvents converter with the given encoding. The JSON
+   * encoding replaces the default JSON converter and converts other values to JSON itself. The
+   * binary encoding is placed ahead of a JSON converter, so values that are not CloudEvents are
+   * still converted to JSON.
+   */
+  public static DataConverter newDataConverter(Encoding encoding) {
+    if (encoding == Encoding.JSON) {
+      return DefaultDataConverter.newDefaultInstance()
+          .withPayloadConverterOverrides(new CloudEventsPayloadConverter(encoding));
+    }
+    return new DefaultDataConverter(
+        new NullPayloadConverter(),
+        new ByteArrayPayloadConverter(),
+        new CloudEventsPayloadConverter(encoding),
+        new ProtobufJsonPayloadConverter(),
+        jsonConverter);
+  }
+
+  /** Returns an object mapper that can also (de)serialize CloudEvents nested in other values. */
+  static ObjectMapper newObjectMapper() {
+    return new ObjectMapper().registerModule(JsonFormat.getCloudEventJacksonModule());
+  }
+
   @Override
   public String getEncodingType() {
-    return "json/plain";
+    return encoding == Encoding.BINARY ? BINARY_ENCODING_TYPE : "json/plain";
   }
 
   @Override
   public Optional<Payload> toData(Object value) throws DataConverterException {
+    if (!(value instanceof CloudEvent)) {
+      // the binary encoding lets the following converters handle it, the JSON encoding replaces
+      // the default JSON converter
+      return encoding == Encoding.BINARY ? Optional.empty() : jsonConverter.toData(value);
+    }
 
     try {
       CloudEvent cloudEvent = (CloudEvent) value;
-      byte[] serialized = CEFormat.serialize(cloudEvent);
+      byte[] serialized =
+          encoding == Encoding.BINARY
+              ? serializeBinary(cloudEvent)
+              : CEFormat.serialize(cloudEvent);
 
       return Optional.of(
           Payload.newBuilder()
-              .putMetadata(
-                  "encoding", ByteString.copyFrom(getEncodingType(), StandardCharsets.UTF_8))
-              .setData(ByteString.copyFrom(serialized))
+              .putMetadata("encoding", encodingType)
+              .setData(UnsafeByteOperations.unsafeWrap(serialized))
               .build());
 
-    } catch (EventSerializationException | ClassCastException e) {
+    } catch (EventSerializationException | ClassCastException | IOException e) {
       throw new DataConverterException(e);
     }
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public <T> T fromData(Payload content, Class<T> valueClass, Type valueType)
       throws DataConverterException {
     try {
+      if (encoding == Encoding.BINARY) {
+        return (T) deserializeBinary(content.getData());
+      }
+      if (!CloudEvent.class.isAssignableFrom(valueClass)) {
+        return jsonConverter.fromData(content, valueClass, valueType);
+      }
       return (T) CEFormat.deserialize(content.getData().toByteArray());
-    } catch (ClassCastException e) {
+    } catch (IOException | RuntimeException e) {
+      // invalid attributes and class cast failures are runtime exceptions
       throw new DataConverterException(e);
     }
   }
+
+  /**
+   * Layout: format version, spec version, the context attributes as name/value strings, the
+   * extensions as name/type/value and the data prefixed with its length (-1 without data). Strings
+   * are UTF-8 prefixed with their length in bytes.
+   */
+  private static byte[] serializeBinary(CloudEvent cloudEvent) throws IOException {
+    CloudEventData data = cloudEvent.getData();
+    byte[] dataBytes = data == null ? null : data.toBytes();
+    ByteArrayOutputStream bytes =
+        new ByteArrayOutputStream(256 + (dataBytes == null ? 0 : dataBytes.length));
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(BINARY_FORMAT_VERSION);
+    writeString(out, cloudEvent.getSpecVersion().toString());
+
+    int attributeCount = 0;
+    for (String name : cloudEvent.getSpecVersion().getAllAttributes()) {
+      if (!"specversion".equals(name) && cloudEvent.getAttribute(name) != null) {
+        attributeCount++;
+      }
+    }
+    out.writeShort(attributeCount);
+    for (String name : cloudEvent.getSpecVersion().getAllAttributes()) {
+      Object attribute = cloudEvent.getAttribute(name);
+      if ("specversion".equals(name) || attribute == null) {
+        continue;
+      }
+      writeString(out, name);
+      writeString(
+          out,
+          attribute instanceof OffsetDateTime
+              ? ((OffsetDateTime) attribute).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+              : attribute.toString());
+    }
+
+    out.writeShort(cloudEvent.getExtensionNames().size());
+    for (String name : cloudEvent.getExtensionNames()) {
+      writeString(out, name);
+      writeExtension(out, cloudEvent.getExtension(name));
+    }
+
+    if (dataBytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(dataBytes.length);
+      out.write(dataBytes);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static CloudEvent deserializeBinary(ByteString serialized) throws IOException {
+    DataInputStream in = new DataInputStream(serialized.newInput());
+    int formatVersion = in.readUnsignedByte();
+    if (formatVersion != BINARY_FORMAT_VERSION) {
+      throw new IOException("Unsupported binary CloudEvent format version: " + formatVersion);
+    }
+    SpecVersion specVersion = SpecVersion.parse(readString(in));
+    CloudEventBuilder builder = CloudEventBuilder.fromSpecVersion(specVersion);
+
+    int attributeCount = in.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      // the builder parses URIs and times of the known attributes
+      builder.withContextAttribute(readString(in), readString(in));
+    }
+
+    int extensionCount = in.readUnsignedShort();
+    for (int i = 0; i < extensionCount; i++) {
+      readExtension(in, builder, readString(in));
+    }
+
+    int dataLength = in.readInt();
+    if (dataLength >= 0) {
+      builder.withData(readBytes(in, dataLength));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes an extension value with its CloudEvents type. Integer is the only numeric type of the
+   * specification, other numbers are rejected rather than truncated.
+   */
+  private static void writeExtension(DataOutputStream out, Object value) throws IOException {
+    if (value instanceof Integer) {
+      out.writeByte(EXTENSION_INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Number) {
+      throw new IOException("Unsupported CloudEvent extension type " + value.getClass().getName());
+    } else if (value instanceof Boolean) {
+      out.writeByte(EXTENSION_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof URI) {
+      out.writeByte(EXTENSION_URI);
+      writeString(out, value.toString());
+    } else if (value instanceof OffsetDateTime) {
+      out.writeByte(EXTENSION_TIME);
+      writeString(out, ((OffsetDateTime) value).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+    } else if (value instanceof byte[]) {
+      out.writeByte(EXTENSION_BINARY);
+      out.writeInt(((byte[]) value).length);
+      out.write((byte[]) value);
+    } else {
+      out.writeByte(EXTENSION_STRING);
+      writeString(out, String.valueOf(value));
+    }
+  }
+
+  private static void readExtension(DataInputStream in, CloudEventBuilder builder, String name)
+      throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case EXTENSION_STRING:
+        builder.withExtension(name, readString(in));
+        break;
+      case EXTENSION_INTEGER:
+        builder.withExtension(name, in.readInt());
+        break;
+      case EXTENSION_BOOLEAN:
+        builder.withExtension(name, in.readBoolean());
+        break;
+      case EXTENSION_URI:
+        builder.withExtension(name, URI.create(readString(in)));
+        break;
+      case EXTENSION_TIME:
+        builder.withExtension(name, OffsetDateTime.parse(readString(in)));
+        break;
+      case EXTENSION_BINARY:
+        builder.withExtension(name, readBytes(in, in.readInt()));
+        break;
+      default:
+        throw new IOException("Unknown CloudEvent extension type: " + type);
+    }
+  }
+
+  /**
+   * Unlike writeUTF, which writes modified UTF-8 and is limited to 64KB, this writes standard UTF-8
+   * of any length.
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return new String(readBytes(in, in.readInt()), StandardCharsets.UTF_8);
+  }
+
+  /** Checks the length against the remaining input before allocating, as it isn't trusted. */
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid length " + length + ", " + in.available() + " bytes left");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
 }
@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.cloudevents;
+
+import io.cloudevents.CloudEvent;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate over all events received by a CEWorkflow, including those of previous runs. It is
+ * small and independent of the number of events, so it is carried over continue-as-new instead of
+ * the events themselves.
+ */
+public class EventAggregate {
+  private long count;
+  private Map<String, Long> countByType = new HashMap<>();
+  private String firstEventTime;
+  private String lastEventTime;
+
+  public EventAggregate() {}
+
+  void add(CloudEvent event) {
+    count++;
+    countByType.merge(event.getType(), 1L, Long::sum);
+    if (event.getTime() != null) {
+      String time = event.getTime().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+      if (firstEventTime == null) {
+        firstEventTime = time;
+      }
+      lastEventTime = time;
+    }
+  }
+
+  /** Adds the events of an aggregate over later events. */
+  void merge(EventAggregate later) {
+    count += later.count;
+    later.countByType.forEach((type, typeCount) -> countByType.merge(type, typeCount, Long::sum));
+    if (firstEventTime == null) {
+      firstEventTime = later.firstEventTime;
+    }
+    if (later.lastEventTime != null) {
+      lastEventTime = later.lastEventTime;
+    }
+  }
+
+  /** Number of events received. */
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public Map<String, Long> getCountByType() {
+    return countByType;
+  }
+
+  public void setCountByType(Map<String, Long> countByType) {
+    this.countByType = countByType;
+  }
+
+  /** Time attribute of the first event that has one, in ISO-8601 format. */
+  public String getFirstEventTime() {
+    return firstEventTime;
+  }
+
+  public void setFirstEventTime(String firstEventTime) {
+    this.firstEventTime = firstEventTime;
+  }
+
+  /** Time attribute of the last event that has one, in ISO-8601 format. */
+  public String getLastEventTime() {
+    return lastEventTime;
+  }
+
+  public void setLastEventTime(String lastEventTime) {
+    this.lastEventTime = lastEventTime;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.cloudevents;
+
+import io.cloudevents.CloudEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent events in a fixed size ring buffer. Every event gets a sequence number, the
+ * number of events received before it, so callers can page through the window.
+ */
+class EventWindow {
+
+  private final CloudEvent[] events;
+  private final long firstSequence;
+  private long nextSequence;
+
+  /**
+   * @param capacity maximum number of events kept
+   * @param firstSequence sequence number of the first event added to this window
+   */
+  EventWindow(int capacity, long firstSequence) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.events = new CloudEvent[capacity];
+    this.firstSequence = firstSequence;
+    this.nextSequence = firstSequence;
+  }
+
+  void add(CloudEvent event) {
+    events[index(nextSequence)] = event;
+    nextSequence++;
+  }
+
+  int size() {
+    return (int) Math.min(nextSequence - firstSequence, events.length);
+  }
+
+  /** Sequence number of the oldest event still in the window. */
+  long getFirstSequence() {
+    return nextSequence - size();
+  }
+
+  CloudEvent getLast() {
+    return size() == 0 ? null : events[index(nextSequence - 1)];
+  }
+
+  /** Returns up to maxCount events starting at fromSequence, skipping those already evicted. */
+  List<CloudEvent> getRange(long fromSequence, int maxCount) {
+    long start = Math.max(fromSequence, getFirstSequence());
+    long end = Math.min(nextSequence, start + Math.max(maxCount, 0));
+    List<CloudEvent> range = new ArrayList<>((int) Math.max(end - start, 0));
+    for (long sequence = start; sequence < end; sequence++) {
+      range.add(events[index(sequence)]);
+    }
+    return range;
+  }
+
+  private int index(long sequence) {
+    return (int) (sequence % events.length);
+  }
+}
@@ -79,7 +79,7 @@ public class Starter {
               .build());
     }
 
-    WorkflowClient.start(workflow::exec, cloudEventList.get(0));
+    WorkflowClient.start(workflow::exec, cloudEventList.get(0), null);
 
     // Send signals (cloud event data)
     for (int j = 1; j < 10; j++) {
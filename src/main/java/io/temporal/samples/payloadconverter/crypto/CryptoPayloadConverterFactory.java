@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.crypto;
+
+import com.codingrodent.jackson.crypto.CryptoModule;
+import com.codingrodent.jackson.crypto.EncryptionService;
+import com.codingrodent.jackson.crypto.PasswordCryptoContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import io.temporal.common.converter.JacksonJsonPayloadConverter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates payload converters that encrypt the {@link com.codingrodent.jackson.crypto.Encrypt}
+ * annotated fields. Deriving the encryption key from the password is expensive, so the converters
+ * use a {@link DerivedKeyCryptoContext}, which derives it once instead of for every field. The
+ * introspection of the annotated types is expensive too, so a configured converter is created once
+ * per password and cipher and shared by all clients and workers that use it. The converter is used
+ * concurrently anyway by the threads of a single client.
+ */
+public final class CryptoPayloadConverterFactory {
+
+  // keyed by a hash of the password and the algorithm names, so the map doesn't hold the password
+  private static final Map<String, JacksonJsonPayloadConverter> converters =
+      new ConcurrentHashMap<>();
+
+  private CryptoPayloadConverterFactory() {}
+
+  /** Returns the converter for the password with the default cipher and key generator. */
+  public static JacksonJsonPayloadConverter getConverter(String password) {
+    return getConverter(
+        password, PasswordCryptoContext.CIPHER_NAME, PasswordCryptoContext.KEY_NAME);
+  }
+
+  /**
+   * @param password encrypt and decrypt password
+   * @param cipherName cipher name, e.g. {@link PasswordCryptoContext#CIPHER_NAME}
+   * @param keyName key generator name, e.g. {@link PasswordCryptoContext#KEY_NAME}
+   */
+  public static JacksonJsonPayloadConverter getConverter(
+      String password, String cipherName, String keyName) {
+    String key =
+        Hashing.sha256().hashString(password, StandardCharsets.UTF_8)
+            + "/"
+            + cipherName
+            + "/"
+            + keyName;
+    return converters.computeIfAbsent(key, k -> newConverter(password, cipherName, keyName));
+  }
+
+  private static JacksonJsonPayloadConverter newConverter(
+      String password, String cipherName, String keyName) {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    // Create the Crypto Context (password based, the key is derived once)
+    DerivedKeyCryptoContext cryptoContext =
+        new DerivedKeyCryptoContext(password, cipherName, keyName);
+    EncryptionService encryptionService = new EncryptionService(objectMapper, cryptoContext);
+    objectMapper.registerModule(new CryptoModule().addEncryptionService(encryptionService));
+
+    return new JacksonJsonPayloadConverter(objectMapper);
+  }
+}
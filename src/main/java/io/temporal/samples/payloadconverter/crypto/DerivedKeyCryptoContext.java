@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.payloadconverter.crypto;
+
+import com.codingrodent.jackson.crypto.EncryptedJson;
+import com.codingrodent.jackson.crypto.ICryptoContext;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Password based crypto context that derives the key once instead of for every field. {@link
+ * com.codingrodent.jackson.crypto.PasswordCryptoContext} runs the key derivation with a fresh salt
+ * for each encrypted field, on encryption and on decryption, which dominates the cost of converting
+ * a payload. This context picks one salt when it is created and derives the encryption key from
+ * it, so encrypting a field only takes a random IV. The keys for decryption are derived once per
+ * salt found in the data, that is once per context that encrypted it, and kept in a small cache.
+ *
+ * <p>Fields are written in the same salt, iv and value format. The cipher has to take an IV
+ * parameter, like the default AES/CBC cipher.
+ */
+final class DerivedKeyCryptoContext implements ICryptoContext {
+
+  static final int SALT_LENGTH = 20;
+  static final int ITERATIONS = 65536;
+  static final int KEY_LENGTH = 256;
+
+  /** Decryption keys kept, one per salt in the data. */
+  private static final int MAX_DECRYPTION_KEYS = 64;
+
+  // SecureRandom is thread safe, seeding a new instance per field is wasted work.
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final char[] password;
+  private final String cipherName;
+  private final String keyName;
+  private final String keyAlgorithm;
+  private final byte[] salt;
+  private final SecretKey encryptionKey;
+  private final Cache<String, SecretKey> decryptionKeys =
+      CacheBuilder.newBuilder().maximumSize(MAX_DECRYPTION_KEYS).build();
+  // Cipher instances are not thread safe, and are reused per thread as the converter is shared.
+  private final ThreadLocal<Cipher> ciphers;
+
+  /**
+   * @param password encrypt and decrypt password
+   * @param cipherName cipher name, e.g. AES/CBC/PKCS5Padding
+   * @param keyName key generator name, e.g. PBKDF2WithHmacSHA512
+   */
+  DerivedKeyCryptoContext(String password, String cipherName, String keyName) {
+    this.password = password.toCharArray();
+    this.cipherName = cipherName;
+    this.keyName = keyName;
+    this.keyAlgorithm = cipherName.split("/")[0];
+    this.salt = new byte[SALT_LENGTH];
+    RANDOM.nextBytes(salt);
+    try {
+      this.encryptionKey = deriveKey(salt);
+      // fail fast on an unknown cipher
+      Cipher.getInstance(cipherName);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("Unable to set up " + cipherName + " with " + keyName, e);
+    }
+    this.decryptionKeys.put(Base64.getEncoder().encodeToString(salt), encryptionKey);
+    this.ciphers =
+        ThreadLocal.withInitial(
+            () -> {
+              try {
+                return Cipher.getInstance(cipherName);
+              } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+  }
+
+  @Override
+  public EncryptedJson encrypt(byte[] data) {
+    try {
+      Cipher cipher = ciphers.get();
+      // the cipher generates a random IV for every field
+      cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, RANDOM);
+      EncryptedJson result = new EncryptedJson();
+      result.setSalt(salt.clone());
+      result.setIv(cipher.getIV());
+      result.setValue(cipher.doFinal(data));
+      return result;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to encrypt with " + cipherName, e);
+    }
+  }
+
+  @Override
+  public byte[] decrypt(EncryptedJson value) {
+    try {
+      SecretKey key =
+          decryptionKeys.get(
+              Base64.getEncoder().encodeToString(value.getSalt()),
+              () -> deriveKey(value.getSalt()));
+      Cipher cipher = ciphers.get();
+      cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(value.getIv()));
+      return cipher.doFinal(value.getValue());
+    } catch (ExecutionException | GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to decrypt with " + cipherName, e);
+    }
+  }
+
+  private SecretKey deriveKey(byte[] salt) throws GeneralSecurityException {
+    PBEKeySpec spec = new PBEKeySpec(password, salt, ITERATIONS, KEY_LENGTH);
+    try {
+      byte[] encoded = SecretKeyFactory.getInstance(keyName).generateSecret(spec).getEncoded();
+      return new SecretKeySpec(encoded, keyAlgorithm);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+}
@@ -19,15 +19,10 @@
 
 package io.temporal.samples.payloadconverter.crypto;
 
-import com.codingrodent.jackson.crypto.CryptoModule;
-import com.codingrodent.jackson.crypto.EncryptionService;
-import com.codingrodent.jackson.crypto.PasswordCryptoContext;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.common.converter.DefaultDataConverter;
-import io.temporal.common.converter.JacksonJsonPayloadConverter;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -46,7 +41,8 @@ public class Starter {
             WorkflowClientOptions.newBuilder()
                 .setDataConverter(
                     DefaultDataConverter.newDefaultInstance()
-                        .withPayloadConverterOverrides(getCryptoJacksonJsonPayloadConverter()))
+                        .withPayloadConverterOverrides(
+                            CryptoPayloadConverterFactory.getConverter(encryptDecryptPassword)))
                 .build());
 
     // Create worker and start Worker factory
@@ -69,22 +65,6 @@ public class Starter {
     System.exit(0);
   }
 
-  private static JacksonJsonPayloadConverter getCryptoJacksonJsonPayloadConverter() {
-    ObjectMapper objectMapper = new ObjectMapper();
-
-    // Create the Crypto Context (password based)
-    PasswordCryptoContext cryptoContext =
-        new PasswordCryptoContext(
-            encryptDecryptPassword, // decrypt password
-            encryptDecryptPassword, // encrypt password
-            PasswordCryptoContext.CIPHER_NAME, // cipher name
-            PasswordCryptoContext.KEY_NAME); // key generator names
-    EncryptionService encryptionService = new EncryptionService(objectMapper, cryptoContext);
-    objectMapper.registerModule(new CryptoModule().addEncryptionService(encryptionService));
-
-    return new JacksonJsonPayloadConverter(objectMapper);
-  }
-
   private static void createWorker(WorkflowClient client) {
     WorkerFactory factory = WorkerFactory.newInstance(client);
     Worker worker = factory.newWorker(TASK_QUEUE);
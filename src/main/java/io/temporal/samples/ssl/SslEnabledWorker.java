@@ -21,6 +21,7 @@ package io.temporal.samples.ssl;
 
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.SimpleSslContextBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.serviceclient.WorkflowServiceStubsOptions;
@@ -62,7 +63,7 @@ public class SslEnabledWorker {
         WorkflowClient.newInstance(
             service, WorkflowClientOptions.newBuilder().setNamespace(namespace).build());
     // worker factory that can be used to create workers for specific task queues
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     // Worker that listens on a task queue and hosts both workflow and activity implementations.
     factory.newWorker(TASK_QUEUE);
     // TODO now register your workflow types and activity implementations.
@@ -0,0 +1,270 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports finished spans in batches from a background thread. Ending a span only puts it in a
+ * bounded queue; when the queue is full the span is dropped instead of blocking the workflow or
+ * activity that ended it, so the memory and the exporting work of tracing stay bounded. With an
+ * offer timeout the ending thread waits up to that long for space first, which slows the traced
+ * code down to the pace of the exporter instead of losing spans. Keep it well below a second, a
+ * workflow thread that is blocked longer is reported as a potential deadlock.
+ *
+ * <p>Reports {@value #EXPORTED}, {@value #DROPPED} (tagged with the reason) and the {@value
+ * #QUEUE_SIZE} to the registry. Dropped spans mean the exporter can't keep up: sample fewer traces
+ * or increase the queue.
+ */
+public final class BoundedBatchSpanProcessor implements SpanProcessor {
+
+  public static final int DEFAULT_MAX_QUEUE_SIZE = 2048;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 512;
+  public static final Duration DEFAULT_SCHEDULE_DELAY = Duration.ofSeconds(1);
+
+  public static final String MAX_QUEUE_SIZE_PROPERTY = "tracing.batch.maxQueueSize";
+  public static final String MAX_BATCH_SIZE_PROPERTY = "tracing.batch.maxBatchSize";
+  public static final String SCHEDULE_DELAY_MILLIS_PROPERTY = "tracing.batch.scheduleDelayMillis";
+  public static final String OFFER_TIMEOUT_MILLIS_PROPERTY = "tracing.batch.offerTimeoutMillis";
+
+  static final String EXPORTED = "tracing_spans_exported";
+  static final String DROPPED = "tracing_spans_dropped";
+  static final String QUEUE_SIZE = "tracing_span_queue_size";
+  static final String REASON_TAG = "reason";
+
+  private static final long EXPORT_TIMEOUT_SECONDS = 30;
+  private static final Logger log = LoggerFactory.getLogger(BoundedBatchSpanProcessor.class);
+
+  private final SpanExporter exporter;
+  private final int maxBatchSize;
+  private final long scheduleDelayNanos;
+  private final long offerTimeoutNanos;
+  private final BlockingQueue<ReadableSpan> queue;
+  private final Counter exported;
+  private final Counter droppedQueueFull;
+  private final Counter droppedExportFailed;
+  private final Object batchReady = new Object();
+  private final Object exportLock = new Object();
+  private final Thread exportThread;
+  private volatile boolean running = true;
+
+  public BoundedBatchSpanProcessor(SpanExporter exporter, MeterRegistry registry) {
+    this(
+        exporter, DEFAULT_MAX_QUEUE_SIZE, DEFAULT_MAX_BATCH_SIZE, DEFAULT_SCHEDULE_DELAY, registry);
+  }
+
+  public BoundedBatchSpanProcessor(
+      SpanExporter exporter,
+      int maxQueueSize,
+      int maxBatchSize,
+      Duration scheduleDelay,
+      MeterRegistry registry) {
+    this(exporter, maxQueueSize, maxBatchSize, scheduleDelay, Duration.ZERO, registry);
+  }
+
+  /**
+   * @param maxQueueSize spans waiting to be exported, further spans are dropped
+   * @param maxBatchSize spans passed to the exporter at once, a full batch is exported right away
+   * @param scheduleDelay longest time a span waits in the queue before it is exported
+   * @param offerTimeout how long ending a span waits for space in a full queue before the span is
+   *     dropped, zero to drop right away
+   */
+  public BoundedBatchSpanProcessor(
+      SpanExporter exporter,
+      int maxQueueSize,
+      int maxBatchSize,
+      Duration scheduleDelay,
+      Duration offerTimeout,
+      MeterRegistry registry) {
+    if (maxBatchSize <= 0 || maxBatchSize > maxQueueSize) {
+      throw new IllegalArgumentException(
+          "maxBatchSize must be between 1 and maxQueueSize " + maxQueueSize + ": " + maxBatchSize);
+    }
+    this.exporter = exporter;
+    this.maxBatchSize = maxBatchSize;
+    this.scheduleDelayNanos = scheduleDelay.toNanos();
+    this.offerTimeoutNanos = offerTimeout.toNanos();
+    this.queue = new ArrayBlockingQueue<>(maxQueueSize);
+    this.exported = registry.counter(EXPORTED);
+    this.droppedQueueFull = registry.counter(DROPPED, REASON_TAG, "queue_full");
+    this.droppedExportFailed = registry.counter(DROPPED, REASON_TAG, "export_failed");
+    registry.gauge(QUEUE_SIZE, queue, BlockingQueue::size);
+    this.exportThread = new Thread(this::exportLoop, "span-batch-exporter");
+    this.exportThread.setDaemon(true);
+    this.exportThread.start();
+  }
+
+  @Override
+  public void onStart(Context parentContext, ReadWriteSpan span) {}
+
+  @Override
+  public boolean isStartRequired() {
+    return false;
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    if (!span.getSpanContext().isSampled()) {
+      return;
+    }
+    if (!offer(span)) {
+      droppedQueueFull.increment();
+      return;
+    }
+    if (queue.size() >= maxBatchSize) {
+      synchronized (batchReady) {
+        batchReady.notify();
+      }
+    }
+  }
+
+  /**
+   * Processor with the queue size, batch size, schedule delay and offer timeout read from the
+   * {@value #MAX_QUEUE_SIZE_PROPERTY}, {@value #MAX_BATCH_SIZE_PROPERTY}, {@value
+   * #SCHEDULE_DELAY_MILLIS_PROPERTY} and {@value #OFFER_TIMEOUT_MILLIS_PROPERTY} system
+   * properties, the defaults for the ones not set.
+   */
+  public static BoundedBatchSpanProcessor fromSystemProperties(
+      SpanExporter exporter, MeterRegistry registry) {
+    return new BoundedBatchSpanProcessor(
+        exporter,
+        Integer.getInteger(MAX_QUEUE_SIZE_PROPERTY, DEFAULT_MAX_QUEUE_SIZE),
+        Integer.getInteger(MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE),
+        Duration.ofMillis(
+            Long.getLong(SCHEDULE_DELAY_MILLIS_PROPERTY, DEFAULT_SCHEDULE_DELAY.toMillis())),
+        Duration.ofMillis(Long.getLong(OFFER_TIMEOUT_MILLIS_PROPERTY, 0L)),
+        registry);
+  }
+
+  private boolean offer(ReadableSpan span) {
+    if (queue.offer(span)) {
+      return true;
+    }
+    if (offerTimeoutNanos == 0) {
+      return false;
+    }
+    try {
+      return queue.offer(span, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return true;
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    exportQueued();
+    return exporter.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    running = false;
+    synchronized (batchReady) {
+      batchReady.notify();
+    }
+    try {
+      exportThread.join(TimeUnit.SECONDS.toMillis(EXPORT_TIMEOUT_SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // spans ended while shutting down
+    exportQueued();
+    return exporter.shutdown();
+  }
+
+  private void exportLoop() {
+    while (running) {
+      try {
+        awaitBatch();
+      } catch (InterruptedException e) {
+        break;
+      }
+      exportQueued();
+    }
+  }
+
+  private void awaitBatch() throws InterruptedException {
+    long deadline = System.nanoTime() + scheduleDelayNanos;
+    synchronized (batchReady) {
+      long remaining;
+      while (running
+          && queue.size() < maxBatchSize
+          && (remaining = deadline - System.nanoTime()) > 0) {
+        TimeUnit.NANOSECONDS.timedWait(batchReady, remaining);
+      }
+    }
+  }
+
+  private void exportQueued() {
+    List<ReadableSpan> spans = new ArrayList<>(maxBatchSize);
+    synchronized (exportLock) {
+      while (queue.drainTo(spans, maxBatchSize) > 0) {
+        // a new list per batch, an exporter that timed out may still hold the previous one
+        List<SpanData> batch = new ArrayList<>(spans.size());
+        for (ReadableSpan span : spans) {
+          batch.add(span.toSpanData());
+        }
+        export(batch);
+        spans.clear();
+      }
+    }
+  }
+
+  private void export(List<SpanData> batch) {
+    try {
+      CompletableResultCode result =
+          exporter.export(batch).join(EXPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      if (result.isSuccess()) {
+        exported.increment(batch.size());
+        return;
+      }
+    } catch (RuntimeException e) {
+      log.warn("Span exporter failed", e);
+    }
+    droppedExportFailed.increment(batch.size());
+  }
+
+  @Override
+  public String toString() {
+    return "BoundedBatchSpanProcessor{exporter=" + exporter + ", queue=" + queue.size() + "}";
+  }
+}
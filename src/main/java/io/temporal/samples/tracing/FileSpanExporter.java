@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends exported spans to a local file, one JSON object per line, so traces can be inspected
+ * without a tracing backend. Each batch is written and flushed with one call, use it behind a
+ * {@link BoundedBatchSpanProcessor} to keep file writes off the traced threads.
+ */
+public final class FileSpanExporter implements SpanExporter {
+
+  private static final Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private final Path file;
+  private final JsonGenerator generator;
+  private boolean shutdown;
+
+  public FileSpanExporter(Path file) throws IOException {
+    this.file = file;
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    OutputStream out =
+        new BufferedOutputStream(
+            Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+            64 * 1024);
+    this.generator = JSON.createGenerator(out, JsonEncoding.UTF8);
+    // separate the objects with new lines instead of spaces
+    this.generator.setRootValueSeparator(null);
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+    if (shutdown) {
+      return CompletableResultCode.ofFailure();
+    }
+    try {
+      for (SpanData span : batch) {
+        write(span);
+      }
+      generator.flush();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      log.warn("Unable to write spans to {}", file, e);
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  private void write(SpanData span) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("traceId", span.getTraceId());
+    generator.writeStringField("spanId", span.getSpanId());
+    if (span.getParentSpanContext().isValid()) {
+      generator.writeStringField("parentSpanId", span.getParentSpanId());
+    }
+    generator.writeStringField("name", span.getName());
+    generator.writeStringField("kind", span.getKind().name());
+    generator.writeNumberField("startEpochNanos", span.getStartEpochNanos());
+    generator.writeNumberField("endEpochNanos", span.getEndEpochNanos());
+    generator.writeStringField("status", span.getStatus().getStatusCode().name());
+    generator.writeObjectFieldStart("attributes");
+    for (Map.Entry<AttributeKey<?>, Object> attribute : span.getAttributes().asMap().entrySet()) {
+      generator.writeStringField(attribute.getKey().getKey(), String.valueOf(attribute.getValue()));
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  @Override
+  public synchronized CompletableResultCode flush() {
+    try {
+      generator.flush();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  @Override
+  public synchronized CompletableResultCode shutdown() {
+    if (shutdown) {
+      return CompletableResultCode.ofSuccess();
+    }
+    shutdown = true;
+    try {
+      generator.close();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      log.warn("Unable to close {}", file, e);
+      return CompletableResultCode.ofFailure();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps exported spans in memory, for tests and benchmarks that run without a tracing backend.
+ * Spans are kept until {@link #clear()}.
+ */
+public final class InMemorySpanCollector implements SpanExporter {
+
+  private final List<SpanData> spans = new ArrayList<>();
+  private boolean shutdown;
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+    if (shutdown) {
+      return CompletableResultCode.ofFailure();
+    }
+    spans.addAll(batch);
+    return CompletableResultCode.ofSuccess();
+  }
+
+  /** Returns a copy of the collected spans, in the order they were exported. */
+  public synchronized List<SpanData> getSpans() {
+    return new ArrayList<>(spans);
+  }
+
+  public synchronized int getSpanCount() {
+    return spans.size();
+  }
+
+  public synchronized void clear() {
+    spans.clear();
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  @Override
+  public synchronized CompletableResultCode shutdown() {
+    shutdown = true;
+    return CompletableResultCode.ofSuccess();
+  }
+}
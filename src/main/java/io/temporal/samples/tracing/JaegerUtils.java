@@ -21,9 +21,9 @@ package io.temporal.samples.tracing;
 
 import io.jaegertracing.internal.JaegerTracer;
 import io.jaegertracing.internal.reporters.RemoteReporter;
-import io.jaegertracing.internal.samplers.ConstSampler;
 import io.jaegertracing.spi.Sampler;
 import io.jaegertracing.thrift.internal.senders.UdpSender;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
 import io.opentelemetry.context.propagation.ContextPropagators;
@@ -34,31 +34,53 @@ import io.opentelemetry.opentracingshim.OpenTracingShim;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
-import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
 import io.opentelemetry.semconv.resource.attributes.ResourceAttributes;
 import io.opentracing.Tracer;
 import io.temporal.opentracing.OpenTracingOptions;
 import io.temporal.opentracing.OpenTracingSpanContextCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 import org.apache.thrift.transport.TTransportException;
 
 public class JaegerUtils {
 
-  public static OpenTracingOptions getJaegerOptions(String type) {
+  public static final String SPAN_FILE_PROPERTY = "tracing.file";
+  public static final String DEFAULT_SPAN_FILE = "tmp/tracing/spans.jsonl";
+
+  /**
+   * @param type "OpenTracing" for the Jaeger client, "File" for OpenTelemetry writing spans to
+   *     {@value #DEFAULT_SPAN_FILE} (or the {@value #SPAN_FILE_PROPERTY} system property), and
+   *     OpenTelemetry exporting to Jaeger otherwise
+   * @param samplingConfig which traces to record
+   * @param registry receives the span export and drop metrics of the OpenTelemetry pipeline
+   */
+  public static OpenTracingOptions getJaegerOptions(
+      String type, SamplingConfig samplingConfig, MeterRegistry registry) {
     if (type.equals("OpenTracing")) {
-      return getJaegerOpenTracingOptions();
+      return getJaegerOpenTracingOptions(samplingConfig);
+    }
+    if (type.equals("File")) {
+      return getFileOpenTelemetryOptions(samplingConfig, registry);
     }
     // default to Open Telemetry
-    return getJaegerOpenTelemetryOptions();
+    return getJaegerOpenTelemetryOptions(samplingConfig, registry);
   }
 
-  private static OpenTracingOptions getJaegerOpenTracingOptions() {
+  private static OpenTracingOptions getJaegerOpenTracingOptions(SamplingConfig samplingConfig) {
     try {
       // Using Udp Sender for OpenTracing, make sure to change host and port
       // to your Jaeger options (if using different than in sample)
       RemoteReporter reporter =
-          new RemoteReporter.Builder().withSender(new UdpSender("localhost", 5775, 0)).build();
-      Sampler sampler = new ConstSampler(true);
+          new RemoteReporter.Builder()
+              .withSender(new UdpSender("localhost", 5775, 0))
+              .withMaxQueueSize(BoundedBatchSpanProcessor.DEFAULT_MAX_QUEUE_SIZE)
+              .build();
+      Sampler sampler = samplingConfig.newJaegerSampler();
       Tracer tracer =
           new JaegerTracer.Builder("temporal-sample-opentracing")
               .withReporter(reporter)
@@ -72,23 +94,57 @@ public class JaegerUtils {
     }
   }
 
-  private static OpenTracingOptions getJaegerOpenTelemetryOptions() {
-    Resource serviceNameResource =
-        Resource.create(
-            Attributes.of(ResourceAttributes.SERVICE_NAME, "temporal-sample-opentelemetry"));
-
+  private static OpenTracingOptions getJaegerOpenTelemetryOptions(
+      SamplingConfig samplingConfig, MeterRegistry registry) {
     JaegerGrpcSpanExporter jaegerExporter =
         JaegerGrpcSpanExporter.builder()
             .setEndpoint("http://localhost:14250")
             .setTimeout(1, TimeUnit.SECONDS)
             .build();
+    return getOpenTelemetryOptions(jaegerExporter, samplingConfig, registry);
+  }
 
+  private static OpenTracingOptions getFileOpenTelemetryOptions(
+      SamplingConfig samplingConfig, MeterRegistry registry) {
+    Path file = Paths.get(System.getProperty(SPAN_FILE_PROPERTY, DEFAULT_SPAN_FILE));
+    try {
+      return getOpenTelemetryOptions(new FileSpanExporter(file), samplingConfig, registry);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to open span file " + file, e);
+    }
+  }
+
+  /**
+   * OpenTelemetry pipeline exporting to any {@link SpanExporter}, for example an {@link
+   * InMemorySpanCollector} in tests. Spans are batched as configured by the {@code tracing.batch}
+   * system properties (see {@link BoundedBatchSpanProcessor#fromSystemProperties}), and flushed
+   * when the process exits.
+   */
+  public static OpenTracingOptions getOpenTelemetryOptions(
+      SpanExporter exporter, SamplingConfig samplingConfig, MeterRegistry registry) {
+    // export from a bounded queue in the background instead of on the ending thread
     SdkTracerProvider tracerProvider =
-        SdkTracerProvider.builder()
-            .addSpanProcessor(SimpleSpanProcessor.create(jaegerExporter))
-            .setResource(Resource.getDefault().merge(serviceNameResource))
-            .build();
+        newTracerProvider(
+            BoundedBatchSpanProcessor.fromSystemProperties(exporter, registry), samplingConfig);
+    // export the queued spans before the process exits
+    Runtime.getRuntime().addShutdownHook(new Thread(tracerProvider::close));
+    return getOpenTelemetryOptions(tracerProvider);
+  }
+
+  /** Tracer provider of the sample service, the caller closes it to flush the spans. */
+  public static SdkTracerProvider newTracerProvider(
+      SpanProcessor spanProcessor, SamplingConfig samplingConfig) {
+    Resource serviceNameResource =
+        Resource.create(
+            Attributes.of(ResourceAttributes.SERVICE_NAME, "temporal-sample-opentelemetry"));
+    return SdkTracerProvider.builder()
+        .addSpanProcessor(spanProcessor)
+        .setSampler(samplingConfig.newOpenTelemetrySampler())
+        .setResource(Resource.getDefault().merge(serviceNameResource))
+        .build();
+  }
 
+  public static OpenTracingOptions getOpenTelemetryOptions(SdkTracerProvider tracerProvider) {
     OpenTelemetrySdk openTelemetry =
         OpenTelemetrySdk.builder()
             .setPropagators(
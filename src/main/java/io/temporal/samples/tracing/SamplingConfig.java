@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.internal.samplers.ProbabilisticSampler;
+import io.jaegertracing.internal.samplers.RateLimitingSampler;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Decides which traces are recorded. Sampling happens when the root span of a trace is started,
+ * usually by the client starting a workflow. Spans with a parent follow the decision of the parent,
+ * which is propagated to workers in the workflow and activity headers, so a trace is either
+ * recorded completely or not at all.
+ *
+ * <p>The cost of tracing grows with the number of recorded spans, so {@link Type#RATE_LIMITING}
+ * caps it regardless of the load: at most {@code maxTracesPerSecond} traces per workflow type are
+ * recorded.
+ */
+public final class SamplingConfig {
+
+  public enum Type {
+    /** Records every trace. */
+    ALWAYS_ON,
+    /** Records a fixed share of the traces. */
+    PROBABILISTIC,
+    /** Records at most a fixed number of traces per second per workflow type. */
+    RATE_LIMITING
+  }
+
+  public static final String TYPE_PROPERTY = "tracing.sampler";
+  public static final String RATIO_PROPERTY = "tracing.sampler.ratio";
+  public static final String MAX_TRACES_PER_SECOND_PROPERTY = "tracing.sampler.maxTracesPerSecond";
+
+  public static final double DEFAULT_RATIO = 0.1;
+  public static final double DEFAULT_MAX_TRACES_PER_SECOND = 1;
+
+  private final Type type;
+  private final double ratio;
+  private final double maxTracesPerSecond;
+
+  private SamplingConfig(Type type, double ratio, double maxTracesPerSecond) {
+    this.type = type;
+    this.ratio = ratio;
+    this.maxTracesPerSecond = maxTracesPerSecond;
+  }
+
+  public static SamplingConfig alwaysOn() {
+    return new SamplingConfig(Type.ALWAYS_ON, 1, DEFAULT_MAX_TRACES_PER_SECOND);
+  }
+
+  public static SamplingConfig probabilistic(double ratio) {
+    if (ratio < 0 || ratio > 1) {
+      throw new IllegalArgumentException("ratio must be between 0 and 1: " + ratio);
+    }
+    return new SamplingConfig(Type.PROBABILISTIC, ratio, DEFAULT_MAX_TRACES_PER_SECOND);
+  }
+
+  public static SamplingConfig rateLimiting(double maxTracesPerSecond) {
+    if (maxTracesPerSecond <= 0) {
+      throw new IllegalArgumentException(
+          "maxTracesPerSecond must be positive: " + maxTracesPerSecond);
+    }
+    return new SamplingConfig(Type.RATE_LIMITING, DEFAULT_RATIO, maxTracesPerSecond);
+  }
+
+  /**
+   * Reads the sampler from the {@value #TYPE_PROPERTY} system property, one of {@code always_on}
+   * (the default), {@code probabilistic} or {@code rate_limiting}, and its parameter from {@value
+   * #RATIO_PROPERTY} or {@value #MAX_TRACES_PER_SECOND_PROPERTY}.
+   */
+  public static SamplingConfig fromSystemProperties() {
+    String type = System.getProperty(TYPE_PROPERTY, Type.ALWAYS_ON.name());
+    switch (parseType(type)) {
+      case PROBABILISTIC:
+        return probabilistic(doubleProperty(RATIO_PROPERTY, DEFAULT_RATIO));
+      case RATE_LIMITING:
+        return rateLimiting(
+            doubleProperty(MAX_TRACES_PER_SECOND_PROPERTY, DEFAULT_MAX_TRACES_PER_SECOND));
+      default:
+        return alwaysOn();
+    }
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /** Sampler for the OpenTelemetry SDK, root spans are sampled as configured. */
+  public Sampler newOpenTelemetrySampler() {
+    Sampler root;
+    switch (type) {
+      case PROBABILISTIC:
+        root = Sampler.traceIdRatioBased(ratio);
+        break;
+      case RATE_LIMITING:
+        root = new WorkflowTypeRateLimitingSampler(maxTracesPerSecond);
+        break;
+      default:
+        root = Sampler.alwaysOn();
+    }
+    return Sampler.parentBased(root);
+  }
+
+  /**
+   * Sampler for the Jaeger client, which only samples root spans. The Jaeger rate limiting sampler
+   * limits all traces together instead of per workflow type.
+   */
+  public io.jaegertracing.spi.Sampler newJaegerSampler() {
+    switch (type) {
+      case PROBABILISTIC:
+        return new ProbabilisticSampler(ratio);
+      case RATE_LIMITING:
+        return new RateLimitingSampler(maxTracesPerSecond);
+      default:
+        return new ConstSampler(true);
+    }
+  }
+
+  private static Type parseType(String type) {
+    try {
+      return Type.valueOf(type.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Invalid "
+              + TYPE_PROPERTY
+              + " "
+              + type
+              + ", expected one of "
+              + Arrays.toString(Type.values()).toLowerCase(Locale.ROOT),
+          e);
+    }
+  }
+
+  private static double doubleProperty(String name, double defaultValue) {
+    String value = System.getProperty(name);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case PROBABILISTIC:
+        return "SamplingConfig{probabilistic, ratio=" + ratio + "}";
+      case RATE_LIMITING:
+        return "SamplingConfig{rate_limiting, maxTracesPerSecond=" + maxTracesPerSecond + "}";
+      default:
+        return "SamplingConfig{always_on}";
+    }
+  }
+}
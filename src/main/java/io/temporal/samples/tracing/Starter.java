@@ -19,11 +19,16 @@
 
 package io.temporal.samples.tracing;
 
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.client.WorkflowStub;
 import io.temporal.opentracing.OpenTracingClientInterceptor;
+import io.temporal.opentracing.OpenTracingOptions;
+import io.temporal.samples.metrics.MetricsUtils;
 import io.temporal.samples.tracing.workflow.TracingWorkflow;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 
@@ -37,10 +42,18 @@ public class Starter {
       type = args[0];
     }
 
+    // Export the span queue and drop metrics of the tracing pipeline
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    HttpServer scrapeEndpoint = MetricsUtils.startPrometheusScrapeEndpoint(registry, 8084);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> scrapeEndpoint.stop(1)));
+    // Sampler from the tracing.sampler system properties, see SamplingConfig
+    OpenTracingOptions tracingOptions =
+        JaegerUtils.getJaegerOptions(type, SamplingConfig.fromSystemProperties(), registry);
+
     // Set the OpenTracing client interceptor
     WorkflowClientOptions clientOptions =
         WorkflowClientOptions.newBuilder()
-            .setInterceptors(new OpenTracingClientInterceptor(JaegerUtils.getJaegerOptions(type)))
+            .setInterceptors(new OpenTracingClientInterceptor(tracingOptions))
             .build();
     WorkflowClient client = WorkflowClient.newInstance(service, clientOptions);
 
@@ -19,15 +19,20 @@
 
 package io.temporal.samples.tracing;
 
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.temporal.client.WorkflowClient;
+import io.temporal.opentracing.OpenTracingOptions;
 import io.temporal.opentracing.OpenTracingWorkerInterceptor;
+import io.temporal.samples.common.WorkerFactoryBuilder;
+import io.temporal.samples.metrics.MetricsUtils;
 import io.temporal.samples.tracing.workflow.TracingActivitiesImpl;
 import io.temporal.samples.tracing.workflow.TracingChildWorkflowImpl;
 import io.temporal.samples.tracing.workflow.TracingWorkflowImpl;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
-import io.temporal.worker.WorkerFactoryOptions;
 
 public class TracingWorker {
   private static final WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
@@ -40,13 +45,20 @@ public class TracingWorker {
       type = args[0];
     }
 
+    // Export the span queue and drop metrics of the tracing pipeline
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    HttpServer scrapeEndpoint = MetricsUtils.startPrometheusScrapeEndpoint(registry, 8083);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> scrapeEndpoint.stop(1)));
+    // Sampler from the tracing.sampler system properties, see SamplingConfig
+    OpenTracingOptions tracingOptions =
+        JaegerUtils.getJaegerOptions(type, SamplingConfig.fromSystemProperties(), registry);
+
     // Set the OpenTracing client interceptor
-    WorkerFactoryOptions factoryOptions =
-        WorkerFactoryOptions.newBuilder()
-            .setWorkerInterceptors(
-                new OpenTracingWorkerInterceptor(JaegerUtils.getJaegerOptions(type)))
+    WorkerFactory factory =
+        WorkerFactoryBuilder.newBuilder(client)
+            .setMeterRegistry(registry)
+            .setWorkerInterceptors(new OpenTracingWorkerInterceptor(tracingOptions))
             .build();
-    WorkerFactory factory = WorkerFactory.newInstance(client, factoryOptions);
 
     Worker worker = factory.newWorker(TASK_QUEUE_NAME);
     worker.registerWorkflowImplementationTypes(
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples at most {@code maxTracesPerSecond} root spans per second for each workflow type, using a
+ * token bucket per type. The Temporal interceptors name spans {@code <operation>:<type>}, for
+ * example {@code StartWorkflow:TracingWorkflow}, so the type is taken from the span name. A busy
+ * workflow type can't use up the budget of the others.
+ *
+ * <p>Meant as the root sampler of {@link Sampler#parentBased(Sampler)}, so only the root span of
+ * a trace is rate limited and the other spans follow its decision.
+ */
+public final class WorkflowTypeRateLimitingSampler implements Sampler {
+
+  private static final SamplingResult RECORD_AND_SAMPLE = SamplingResult.recordAndSample();
+  private static final SamplingResult DROP = SamplingResult.drop();
+
+  private final double maxTracesPerSecond;
+  private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+  public WorkflowTypeRateLimitingSampler(double maxTracesPerSecond) {
+    this.maxTracesPerSecond = maxTracesPerSecond;
+  }
+
+  @Override
+  public SamplingResult shouldSample(
+      Context parentContext,
+      String traceId,
+      String name,
+      SpanKind spanKind,
+      Attributes attributes,
+      List<LinkData> parentLinks) {
+    String type = name.substring(name.indexOf(':') + 1);
+    long nowNanos = System.nanoTime();
+    TokenBucket bucket = buckets.get(type);
+    if (bucket == null) {
+      bucket = buckets.computeIfAbsent(type, t -> new TokenBucket(maxTracesPerSecond, nowNanos));
+    }
+    return bucket.tryAcquire(nowNanos) ? RECORD_AND_SAMPLE : DROP;
+  }
+
+  @Override
+  public String getDescription() {
+    return "WorkflowTypeRateLimitingSampler{maxTracesPerSecond=" + maxTracesPerSecond + "}";
+  }
+
+  /** Holds up to one second of traces, so a burst after an idle period is bounded as well. */
+  static final class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double tokensPerSecond, long nowNanos) {
+      this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+      this.capacity = Math.max(1, tokensPerSecond);
+      this.tokens = capacity;
+      this.lastRefillNanos = nowNanos;
+    }
+
+    synchronized boolean tryAcquire(long nowNanos) {
+      tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+      lastRefillNanos = nowNanos;
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+  }
+}
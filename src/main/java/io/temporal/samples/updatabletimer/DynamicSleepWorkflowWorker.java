@@ -20,6 +20,7 @@
 package io.temporal.samples.updatabletimer;
 
 import io.temporal.client.WorkflowClient;
+import io.temporal.samples.common.WorkerFactoryBuilder;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -37,7 +38,7 @@ public class DynamicSleepWorkflowWorker {
   public static void main(String[] args) {
     WorkflowServiceStubs service = WorkflowServiceStubs.newLocalServiceStubs();
     WorkflowClient client = WorkflowClient.newInstance(service);
-    WorkerFactory factory = WorkerFactory.newInstance(client);
+    WorkerFactory factory = WorkerFactoryBuilder.newBuilder(client).build();
     final Worker worker = factory.newWorker(TASK_QUEUE);
     worker.registerWorkflowImplementationTypes(DynamicSleepWorkflowImpl.class);
     factory.start();
@@ -0,0 +1,147 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.samples.hello.HelloSignal.GreetingWorkflow;
+import io.temporal.samples.hello.HelloSignal.GreetingWorkflowImpl;
+import io.temporal.testing.TestWorkflowRule;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class WorkflowCacheMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  // A single cached execution, so running two workflows at once evicts one of them
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(GreetingWorkflowImpl.class, CountdownWorkflowImpl.class)
+          .setWorkerFactoryOptions(
+              WorkerFactoryBuilder.newBuilder(mock(WorkflowClient.class))
+                  .setWorkflowCacheSize(1)
+                  .setMaxWorkflowThreadCount(10)
+                  .setMeterRegistry(registry)
+                  .setName("cache-test")
+                  .buildOptions())
+          .build();
+
+  @Test
+  public void testEvictionsCauseForcedReplays() throws InterruptedException {
+    GreetingWorkflow first = start("first");
+    GreetingWorkflow second = start("second");
+
+    first.exit();
+    second.exit();
+
+    assertEquals(Arrays.asList("Hello first!"), result(first));
+    assertEquals(Arrays.asList("Hello second!"), result(second));
+
+    // evictions are counted in the background
+    long deadline = System.currentTimeMillis() + 5000;
+    while (count(WorkflowCacheMetricsInterceptor.EVICTIONS) < 1
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(count(WorkflowCacheMetricsInterceptor.EVICTIONS) >= 1);
+    assertTrue(count(WorkflowCacheMetricsInterceptor.FORCED_REPLAYS) >= 1);
+    assertEquals(
+        1,
+        registry
+            .get(WorkflowCacheMetricsInterceptor.CAPACITY)
+            .tag(WorkflowCacheMetricsInterceptor.FACTORY_TAG, "cache-test")
+            .gauge()
+            .value(),
+        0);
+  }
+
+  @WorkflowInterface
+  public interface CountdownWorkflow {
+    @WorkflowMethod
+    void countdown(int runs);
+  }
+
+  public static class CountdownWorkflowImpl implements CountdownWorkflow {
+    @Override
+    public void countdown(int runs) {
+      if (runs > 1) {
+        Workflow.continueAsNew(runs - 1);
+      }
+    }
+  }
+
+  @Test
+  public void testContinueAsNewIsNotAnEviction() throws InterruptedException {
+    CountdownWorkflow workflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(
+                CountdownWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+    // one run at a time, so nothing has to leave the cache of a single execution
+    workflow.countdown(3);
+
+    // evictions are counted in the background, give a wrongly counted one time to show up
+    Thread.sleep(500);
+    assertEquals(0, count(WorkflowCacheMetricsInterceptor.EVICTIONS), 0);
+  }
+
+  private GreetingWorkflow start(String name) {
+    GreetingWorkflow workflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(
+                GreetingWorkflow.class,
+                WorkflowOptions.newBuilder()
+                    .setTaskQueue(testWorkflowRule.getTaskQueue())
+                    .setWorkflowId("cache-" + name)
+                    .build());
+    WorkflowClient.start(workflow::getGreetings);
+    workflow.waitForName(name);
+    return workflow;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<String> result(GreetingWorkflow workflow) {
+    return WorkflowStub.fromTyped(workflow).getResult(List.class);
+  }
+
+  private double count(String name) {
+    double count = 0;
+    for (Counter counter : registry.find(name).counters()) {
+      count += counter.count();
+    }
+    return count;
+  }
+}
@@ -34,6 +34,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class DslWorkflowTest {
 
@@ -44,9 +45,12 @@ public class DslWorkflowTest {
           .setActivityImplementations(new DslActivitiesImpl())
           .build();
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void testCustomerApplicationDSLWorkflow() throws Exception {
-    Workflow dslWorkflow = DslWorkflowCache.getWorkflow("customerapplication", "1.0");
+    Workflow dslWorkflow =
+        DslWorkflowRegistry.getInstance().getWorkflow("customerapplication", "1.0");
 
     WorkflowOptions workflowOptions =
         WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build();
@@ -74,7 +78,8 @@ public class DslWorkflowTest {
 
   @Test
   public void testBankingTransactionsDSLWorkflow() throws Exception {
-    Workflow dslWorkflow = DslWorkflowCache.getWorkflow("bankingtransactions", "1.0");
+    Workflow dslWorkflow =
+        DslWorkflowRegistry.getInstance().getWorkflow("bankingtransactions", "1.0");
 
     WorkflowOptions workflowOptions =
         WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build();
@@ -105,6 +110,35 @@ public class DslWorkflowTest {
     assertEquals("invoked", results.get(2).get("result").asText());
   }
 
+  @Test
+  public void testRegistryKeepsRegisteredVersionsImmutable() throws Exception {
+    String definition = getFileAsString("dsl/bankingtransactions/workflow.json");
+    DslWorkflowRegistry registry = new DslWorkflowRegistry();
+
+    File directory = temporaryFolder.newFolder("definitions");
+    Files.write(
+        new File(directory, "v1.json").toPath(), definition.getBytes(StandardCharsets.UTF_8));
+    assertEquals(1, registry.loadDirectory(directory.toPath()));
+    assertNotNull(registry.getExecutionPlan("bankingtransactions", "1.0"));
+
+    // same id-version with a different definition is ignored, a new version is registered
+    Files.write(
+        new File(directory, "v1-changed.json").toPath(),
+        definition
+            .replace("Customer Banking Transactions Workflow", "Changed")
+            .getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        new File(directory, "v2.json").toPath(),
+        definition
+            .replace("\"version\": \"1.0\"", "\"version\": \"2.0\"")
+            .getBytes(StandardCharsets.UTF_8));
+    assertEquals(1, registry.loadDirectory(directory.toPath()));
+    assertEquals(
+        "Customer Banking Transactions Workflow",
+        registry.getWorkflow("bankingtransactions", "1.0").getName());
+    assertNotNull(registry.getWorkflow("bankingtransactions", "2.0"));
+  }
+
   private static JsonNode getSampleWorkflowInput(String dataInputFileName) throws Exception {
     String workflowDataInput = getFileAsString(dataInputFileName);
     ObjectMapper objectMapper = new ObjectMapper();
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.dsl.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+public class WorkflowDataTest {
+
+  @Test
+  public void testCustomerFollowsInPlaceEdits() {
+    WorkflowData data = new WorkflowData("{\"customer\": {\"name\": \"John\", \"age\": 22}}");
+    Customer customer = data.getCustomer();
+    assertEquals("John", customer.getName());
+    assertSame(customer, data.getCustomer());
+
+    ((ObjectNode) data.getValue().get("customer")).put("age", 23);
+    assertEquals(23, data.getCustomer().getAge());
+  }
+
+  @Test
+  public void testActResultNodeHasAllFields() {
+    // addResults builds the ActResult node by hand, this fails when a field is added to ActResult
+    ActResult result = new ActResult("customerCheck", "approved");
+    WorkflowData data = new WorkflowData();
+    data.addResults(result);
+    assertEquals(
+        new ObjectMapper().valueToTree(result), data.getValue().withArray("results").get(0));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import static org.junit.Assert.*;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodecException;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+
+public class CompressionCodecTest {
+
+  @Test
+  public void testRoundTrip() {
+    Payload payload = payload(ByteString.copyFromUtf8(Strings.repeat("\"compressible\",", 1000)));
+    for (CompressionCodec.Algorithm algorithm : CompressionCodec.Algorithm.values()) {
+      CompressionCodec codec =
+          new CompressionCodec(algorithm, CompressionCodec.DEFAULT_THRESHOLD_BYTES);
+
+      Payload encoded = encode(codec, payload);
+      assertEquals(
+          algorithm.name(),
+          CompressionCodec.METADATA_ENCODING,
+          encoded.getMetadataOrThrow(EncodingKeys.METADATA_ENCODING_KEY));
+      assertTrue(algorithm.name(), encoded.getData().size() < payload.getSerializedSize());
+      assertEquals(algorithm.name(), payload, decode(codec, encoded));
+    }
+  }
+
+  @Test
+  public void testPayloadBelowThresholdIsNotCompressed() {
+    Payload payload = payload(ByteString.copyFromUtf8(Strings.repeat("a", 100)));
+    CompressionCodec codec = new CompressionCodec();
+
+    assertSame(payload, encode(codec, payload));
+    assertSame(payload, decode(codec, payload));
+  }
+
+  @Test
+  public void testPayloadThatDoesNotGetSmallerIsNotCompressed() {
+    byte[] data = new byte[4096];
+    new Random(42).nextBytes(data);
+    Payload payload = payload(ByteString.copyFrom(data));
+    for (CompressionCodec.Algorithm algorithm : CompressionCodec.Algorithm.values()) {
+      CompressionCodec codec =
+          new CompressionCodec(algorithm, CompressionCodec.DEFAULT_THRESHOLD_BYTES);
+      assertSame(algorithm.name(), payload, encode(codec, payload));
+    }
+  }
+
+  @Test
+  public void testTruncatedPayloadFailsToDecode() {
+    Payload payload = payload(ByteString.copyFromUtf8(Strings.repeat("\"compressible\",", 1000)));
+    for (CompressionCodec.Algorithm algorithm : CompressionCodec.Algorithm.values()) {
+      CompressionCodec codec =
+          new CompressionCodec(algorithm, CompressionCodec.DEFAULT_THRESHOLD_BYTES);
+      Payload encoded = encode(codec, payload);
+      ByteString data = encoded.getData();
+      Payload truncated = encoded.toBuilder().setData(data.substring(0, data.size() / 2)).build();
+
+      assertDecodeFails(algorithm.name(), codec, truncated);
+    }
+  }
+
+  @Test
+  public void testInvalidOriginalSizeFailsToDecode() {
+    Payload payload = payload(ByteString.copyFromUtf8(Strings.repeat("\"compressible\",", 1000)));
+    CompressionCodec codec = new CompressionCodec();
+    Payload encoded = encode(codec, payload);
+    for (long originalSize : new long[] {-1, CompressionCodec.MAX_ORIGINAL_SIZE_BYTES + 1L}) {
+      Payload invalid =
+          encoded
+              .toBuilder()
+              .putMetadata(
+                  CompressionCodec.METADATA_COMPRESSION_ORIGINAL_SIZE_KEY,
+                  ByteString.copyFromUtf8(Long.toString(originalSize)))
+              .build();
+
+      assertDecodeFails("original size " + originalSize, codec, invalid);
+    }
+  }
+
+  private static void assertDecodeFails(String message, CompressionCodec codec, Payload payload) {
+    try {
+      decode(codec, payload);
+      fail(message + ": decoding must fail");
+    } catch (PayloadCodecException e) {
+      // expected
+    }
+  }
+
+  private static Payload encode(CompressionCodec codec, Payload payload) {
+    return codec.encode(Collections.singletonList(payload)).get(0);
+  }
+
+  private static Payload decode(CompressionCodec codec, Payload payload) {
+    return codec.decode(Collections.singletonList(payload)).get(0);
+  }
+
+  private static Payload payload(ByteString data) {
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("json/plain"))
+        .setData(data)
+        .build();
+  }
+}
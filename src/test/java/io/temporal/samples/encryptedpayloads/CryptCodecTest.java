@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodecException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.Test;
+
+public class CryptCodecTest {
+  private static final int NONCE_LENGTH = 12;
+
+  private final CryptCodec codec = new CryptCodec();
+
+  @Test
+  public void testRoundTrip() {
+    Payload payload = payload(ByteString.copyFromUtf8("\"John\""));
+
+    Payload encoded = codec.encode(Collections.singletonList(payload)).get(0);
+    assertEquals(
+        CryptCodec.METADATA_ENCODING,
+        encoded.getMetadataOrThrow(EncodingKeys.METADATA_ENCODING_KEY));
+    assertFalse(encoded.getData().toStringUtf8().contains("John"));
+
+    List<Payload> decoded = codec.decode(Collections.singletonList(encoded));
+    assertEquals(Collections.singletonList(payload), decoded);
+  }
+
+  @Test
+  public void testRoundTripOfPayloadSizes() throws Exception {
+    // empty, smaller than a cipher block, and larger than the cipher's internal buffers
+    for (int size : new int[] {0, 10, 2 * 1024 * 1024 + 3}) {
+      byte[] data = new byte[size];
+      new Random(size).nextBytes(data);
+      Payload payload = payload(ByteString.copyFrom(data));
+
+      Payload encoded = codec.encode(Collections.singletonList(payload)).get(0);
+      assertEquals(
+          "size " + size, payload, codec.decode(Collections.singletonList(encoded)).get(0));
+
+      // the data of a payload read from the wire is backed by a different buffer
+      Payload received = Payload.parseFrom(encoded.toByteArray());
+      assertEquals(
+          "size " + size, payload, codec.decode(Collections.singletonList(received)).get(0));
+    }
+  }
+
+  @Test
+  public void testEncodingsUseDifferentNonces() {
+    List<Payload> payloads =
+        Collections.singletonList(payload(ByteString.copyFromUtf8("\"John\"")));
+
+    ByteString first = codec.encode(payloads).get(0).getData();
+    ByteString second = codec.encode(payloads).get(0).getData();
+    assertNotEquals(first.substring(0, NONCE_LENGTH), second.substring(0, NONCE_LENGTH));
+    assertNotEquals(first, second);
+  }
+
+  @Test
+  public void testParallelRoundTripKeepsOrder() {
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+    try {
+      CryptCodec parallelCodec =
+          new CryptCodec(
+              new CryptCodec.HardCodedKeyProvider(),
+              CryptCodec.DEFAULT_PARALLEL_THRESHOLD_BYTES,
+              executor);
+      List<Payload> payloads = largePayloads();
+
+      List<Payload> encoded = parallelCodec.encode(payloads);
+      assertEquals(payloads.size() - 1, executor.getTaskCount());
+      assertEquals(payloads, parallelCodec.decode(encoded));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testParallelDecodeFailurePropagates() {
+    List<Payload> encoded = new ArrayList<>(codec.encode(largePayloads()));
+    // flip a ciphertext byte of a payload decoded off the calling thread
+    Payload tampered = encoded.get(3);
+    byte[] data = tampered.getData().toByteArray();
+    data[data.length - 1] ^= 1;
+    encoded.set(3, tampered.toBuilder().setData(ByteString.copyFrom(data)).build());
+
+    try {
+      codec.decode(encoded);
+      fail("decoding a tampered payload must fail");
+    } catch (PayloadCodecException e) {
+      // expected
+    }
+  }
+
+  /** Eight 64 KB payloads, twice the default parallel threshold in total. */
+  private static List<Payload> largePayloads() {
+    List<Payload> payloads = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 8; i++) {
+      byte[] data = new byte[64 * 1024];
+      random.nextBytes(data);
+      payloads.add(payload(ByteString.copyFrom(data)));
+    }
+    return payloads;
+  }
+
+  private static Payload payload(ByteString data) {
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("json/plain"))
+        .setData(data)
+        .build();
+  }
+}
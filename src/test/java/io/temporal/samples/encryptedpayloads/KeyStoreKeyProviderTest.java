@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.encryptedpayloads;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Collections;
+import javax.crypto.KeyGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KeyStoreKeyProviderTest {
+  private static final char[] PASSWORD = "changeit".toCharArray();
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRotatedKeyEncryptsNewPayloadsAndOldPayloadsStillDecrypt() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("keys.p12");
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    keyStore.load(null, PASSWORD);
+    addKey(keyStore, file, "key-1");
+
+    // no background reloads, the rotation is picked up by the lookup of the unknown key below
+    try (KeyStoreKeyProvider keyProvider =
+        new KeyStoreKeyProvider(
+            file, "PKCS12", PASSWORD, Duration.ofHours(1), Duration.ofHours(2))) {
+      CryptCodec codec = new CryptCodec(keyProvider);
+      Payload payload =
+          Payload.newBuilder()
+              .putMetadata(
+                  EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("json/plain"))
+              .setData(ByteString.copyFromUtf8("\"John\""))
+              .build();
+      Payload oldPayload = codec.encode(Collections.singletonList(payload)).get(0);
+      assertEquals("key-1", keyId(oldPayload));
+
+      // created in the same second as key-1 or later, either way key-2 becomes active
+      addKey(keyStore, file, "key-2");
+      assertNotNull(keyProvider.getKey("key-2"));
+      assertEquals("key-2", keyProvider.getActiveKeyId());
+
+      Payload newPayload = codec.encode(Collections.singletonList(payload)).get(0);
+      assertEquals("key-2", keyId(newPayload));
+      assertEquals(payload, codec.decode(Collections.singletonList(oldPayload)).get(0));
+      assertEquals(payload, codec.decode(Collections.singletonList(newPayload)).get(0));
+    }
+  }
+
+  private static void addKey(KeyStore keyStore, Path file, String alias) throws Exception {
+    KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+    keyGenerator.init(256);
+    keyStore.setEntry(
+        alias,
+        new KeyStore.SecretKeyEntry(keyGenerator.generateKey()),
+        new KeyStore.PasswordProtection(PASSWORD));
+    try (OutputStream out = Files.newOutputStream(file)) {
+      keyStore.store(out, PASSWORD);
+    }
+  }
+
+  private static String keyId(Payload payload) {
+    return payload.getMetadataOrThrow(CryptCodec.METADATA_ENCRYPTION_KEY_ID_KEY).toStringUtf8();
+  }
+}
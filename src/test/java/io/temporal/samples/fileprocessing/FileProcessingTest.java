@@ -19,16 +19,31 @@
 
 package io.temporal.samples.fileprocessing;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import io.temporal.activity.ActivityOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.samples.fileprocessing.StoreActivities.TaskQueueFileNamePair;
+import io.temporal.testing.TestActivityEnvironment;
 import io.temporal.testing.TestWorkflowRule;
 import io.temporal.worker.Worker;
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.*;
+import org.junit.rules.TemporaryFolder;
 
 public class FileProcessingTest {
 
@@ -57,6 +72,8 @@ public class FileProcessingTest {
           .setDoNotStart(true)
           .build();
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   // Host specific workers.
   private Worker workerHost1;
   private Worker workerHost2;
@@ -152,4 +169,104 @@ public class FileProcessingTest {
 
     testWorkflowRule.getTestEnvironment().shutdown();
   }
+
+  @Test
+  public void testChunkedProcessing() {
+    // Register the chunking implementation on its own task queue.
+    String chunkedTaskQueue = "chunked";
+    Worker chunkedWorker = testWorkflowRule.getTestEnvironment().newWorker(chunkedTaskQueue);
+    chunkedWorker.addWorkflowImplementationFactory(
+        FileProcessingWorkflow.class, () -> new FileProcessingWorkflowImpl(3, 2));
+    StoreActivities activities = mock(StoreActivities.class);
+    when(activities.download(any()))
+        .thenReturn(new TaskQueueFileNamePair(HOST_NAME_1, FILE_NAME_UNPROCESSED, 10));
+    chunkedWorker.registerActivitiesImplementations(activities);
+
+    StoreActivities activitiesHost1 = mock(StoreActivities.class);
+    when(activitiesHost1.processChunk(eq(FILE_NAME_UNPROCESSED), anyLong(), anyLong()))
+        .then(invocation -> "part-" + invocation.getArgument(1));
+    when(activitiesHost1.merge(any())).thenReturn(FILE_NAME_PROCESSED);
+    workerHost1.registerActivitiesImplementations(activitiesHost1);
+
+    testWorkflowRule.getTestEnvironment().start();
+
+    FileProcessingWorkflow workflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(
+                FileProcessingWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(chunkedTaskQueue).build());
+
+    workflow.processFile(SOURCE, DESTINATION);
+
+    verify(activities).download(SOURCE);
+    verify(activitiesHost1).processChunk(FILE_NAME_UNPROCESSED, 0, 4);
+    verify(activitiesHost1).processChunk(FILE_NAME_UNPROCESSED, 4, 4);
+    verify(activitiesHost1).processChunk(FILE_NAME_UNPROCESSED, 8, 2);
+    verify(activitiesHost1).merge(Arrays.asList("part-0", "part-4", "part-8"));
+    verify(activitiesHost1).upload(FILE_NAME_PROCESSED, DESTINATION);
+
+    verifyNoMoreInteractions(activities, activitiesHost1);
+
+    testWorkflowRule.getTestEnvironment().shutdown();
+  }
+
+  @Test
+  public void testMergeConcatenatesChunksInOrder() throws Exception {
+    File first = temporaryFolder.newFile("processed.part-0");
+    File second = temporaryFolder.newFile("processed.part-5");
+    Files.write(first.toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+    Files.write(second.toPath(), " world".getBytes(StandardCharsets.UTF_8));
+
+    TestActivityEnvironment activityEnvironment = TestActivityEnvironment.newInstance();
+    try {
+      activityEnvironment.registerActivitiesImplementations(new StoreActivitiesImpl(HOST_NAME_1));
+      StoreActivities activities =
+          activityEnvironment.newActivityStub(
+              StoreActivities.class,
+              ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofMinutes(1)).build());
+
+      String merged =
+          activities.merge(Arrays.asList(first.getAbsolutePath(), second.getAbsolutePath()));
+
+      assertEquals(
+          Collections.singletonList("hello world"),
+          Files.readAllLines(new File(merged).toPath(), StandardCharsets.UTF_8));
+    } finally {
+      activityEnvironment.close();
+    }
+  }
+
+  @Test
+  public void testProcessResumesFromHeartbeatedOffset() throws Exception {
+    byte[] content = new byte[3 * StoreActivitiesImpl.CHUNK_SIZE + 17];
+    new Random(42).nextBytes(content);
+    File input = temporaryFolder.newFile("downloaded");
+    Files.write(input.toPath(), content);
+
+    // Simulate a previous attempt that checkpointed one chunk and then wrote some more bytes.
+    long checkpoint = StoreActivitiesImpl.CHUNK_SIZE;
+    byte[] partial = Arrays.copyOf(content, StoreActivitiesImpl.CHUNK_SIZE + 100);
+    Arrays.fill(partial, StoreActivitiesImpl.CHUNK_SIZE, partial.length, (byte) 0);
+    Files.write(new File(temporaryFolder.getRoot(), "processed").toPath(), partial);
+
+    TestActivityEnvironment activityEnvironment = TestActivityEnvironment.newInstance();
+    try {
+      activityEnvironment.registerActivitiesImplementations(new StoreActivitiesImpl(HOST_NAME_1));
+      activityEnvironment.setHeartbeatDetails(checkpoint);
+      AtomicLong lastHeartbeat = new AtomicLong();
+      activityEnvironment.setActivityHeartbeatListener(Long.class, lastHeartbeat::set);
+      StoreActivities activities =
+          activityEnvironment.newActivityStub(
+              StoreActivities.class,
+              ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofMinutes(1)).build());
+
+      String processed = activities.process(input.getAbsolutePath());
+
+      assertArrayEquals(content, Files.readAllBytes(new File(processed).toPath()));
+      assertEquals(content.length, lastHeartbeat.get());
+    } finally {
+      activityEnvironment.close();
+    }
+  }
 }
@@ -21,24 +21,34 @@ package io.temporal.samples.interceptor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.client.WorkflowStub;
+import io.temporal.common.converter.CodecDataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.samples.interceptor.activities.MyActivitiesImpl;
 import io.temporal.samples.interceptor.workflow.MyChildWorkflowImpl;
 import io.temporal.samples.interceptor.workflow.MyWorkflow;
 import io.temporal.samples.interceptor.workflow.MyWorkflowImpl;
 import io.temporal.testing.TestWorkflowRule;
+import java.util.Arrays;
 import org.junit.Rule;
 import org.junit.Test;
 
 public class ClientCountInterceptorTest {
 
   private static final String WORKFLOW_ID = "TestInterceptorWorkflow";
+  // the client counters are static, so each test uses its own workflow id
+  private static final String METRICS_WORKFLOW_ID = "TestClientMetricsWorkflow";
 
   private final ClientCounter clientCounter = new ClientCounter();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ClientMetrics clientMetrics = new ClientMetrics(registry);
 
   @Rule
   public TestWorkflowRule testWorkflowRule =
@@ -47,7 +57,12 @@ public class ClientCountInterceptorTest {
           .setActivityImplementations(new MyActivitiesImpl())
           .setWorkflowClientOptions(
               WorkflowClientOptions.newBuilder()
-                  .setInterceptors(new SimpleClientInterceptor(clientCounter))
+                  .setInterceptors(new SimpleClientInterceptor(clientCounter, clientMetrics))
+                  .setDataConverter(
+                      new CodecDataConverter(
+                          DefaultDataConverter.newDefaultInstance(),
+                          Arrays.asList(
+                              clientMetrics.postCodecSizes(), clientMetrics.preCodecSizes())))
                   .build())
           .build();
 
@@ -88,4 +103,58 @@ public class ClientCountInterceptorTest {
     assertEquals(2, clientCounter.getNumOfSignals(WORKFLOW_ID));
     assertEquals(2, clientCounter.getNumOfQueries(WORKFLOW_ID));
   }
+
+  @Test
+  public void testClientMetrics() {
+    WorkflowClient workflowClient = testWorkflowRule.getWorkflowClient();
+
+    MyWorkflow workflow =
+        workflowClient.newWorkflowStub(
+            MyWorkflow.class,
+            WorkflowOptions.newBuilder()
+                .setTaskQueue(testWorkflowRule.getTaskQueue())
+                .setWorkflowId(METRICS_WORKFLOW_ID)
+                .build());
+
+    WorkflowClient.start(workflow::exec);
+    workflow.signalNameAndTitle("John", "Customer");
+    workflow.queryName();
+    workflow.exit();
+    WorkflowStub.fromTyped(workflow).getResult(String.class);
+
+    assertEquals(1, callCount("start", "MyWorkflow"));
+    assertEquals(1, callCount("signal", "signalNameAndTitle"));
+    assertEquals(1, callCount("signal", "exit"));
+    assertEquals(1, callCount("query", "queryName"));
+    assertEquals(1, callCount("get_result", "MyWorkflow"));
+    assertTrue(registry.find(ClientMetrics.CALL_FAILURES).counters().isEmpty());
+
+    // no codec between the two size recording codecs, so both see the same payloads
+    DistributionSummary preCodec = payloadSize("signal", "signalNameAndTitle", "pre_codec");
+    DistributionSummary postCodec = payloadSize("signal", "signalNameAndTitle", "post_codec");
+    assertEquals(1, preCodec.count());
+    assertTrue(preCodec.totalAmount() > 0);
+    assertEquals(preCodec.totalAmount(), postCodec.totalAmount(), 0);
+
+    // the query has no arguments, only its result is recorded
+    assertEquals(1, payloadSize("query", "queryName", "pre_codec").count());
+  }
+
+  private long callCount(String operation, String type) {
+    return registry
+        .get(ClientMetrics.CALL_LATENCY)
+        .tag(ClientMetrics.OPERATION_TAG, operation)
+        .tag(ClientMetrics.TYPE_TAG, type)
+        .timer()
+        .count();
+  }
+
+  private DistributionSummary payloadSize(String operation, String type, String stage) {
+    return registry
+        .get(ClientMetrics.PAYLOAD_SIZE)
+        .tag(ClientMetrics.OPERATION_TAG, operation)
+        .tag(ClientMetrics.TYPE_TAG, type)
+        .tag(ClientMetrics.STAGE_TAG, stage)
+        .summary();
+  }
 }
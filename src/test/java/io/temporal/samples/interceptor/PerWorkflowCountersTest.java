@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class PerWorkflowCountersTest {
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    PerWorkflowCounters<WorkerCounter.Type> counters =
+        new PerWorkflowCounters<>(WorkerCounter.Type.class, PerWorkflowCounters.DEFAULT_TTL);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int j = 0; j < 10_000; j++) {
+                    counters.increment("workflow", WorkerCounter.Type.SIGNALS);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(80_000, counters.get("workflow", WorkerCounter.Type.SIGNALS));
+    assertEquals(0, counters.get("workflow", WorkerCounter.Type.QUERIES));
+    assertEquals(0, counters.get("unknown", WorkerCounter.Type.SIGNALS));
+  }
+
+  @Test
+  public void testFinishedWorkflowsExpire() throws Exception {
+    PerWorkflowCounters<WorkerCounter.Type> counters =
+        new PerWorkflowCounters<>(WorkerCounter.Type.class, Duration.ofMillis(50));
+    counters.increment("finished", WorkerCounter.Type.SIGNALS);
+    counters.increment("running", WorkerCounter.Type.SIGNALS);
+    counters.markFinished("finished");
+
+    Thread.sleep(120);
+    // sweeps happen on increments
+    counters.increment("running", WorkerCounter.Type.SIGNALS);
+
+    assertFalse(counters.getWorkflowIds().contains("finished"));
+    assertTrue(counters.getWorkflowIds().contains("running"));
+    assertEquals(2, counters.get("running", WorkerCounter.Type.SIGNALS));
+  }
+}
@@ -20,6 +20,7 @@
 package io.temporal.samples.metrics;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 
 import com.google.common.collect.ImmutableMap;
 import com.uber.m3.tally.RootScopeBuilder;
@@ -29,6 +30,7 @@ import com.uber.m3.util.Duration;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
@@ -39,10 +41,18 @@ import io.temporal.samples.metrics.workflow.MetricsWorkflowImpl;
 import io.temporal.serviceclient.MetricsTag;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.serviceclient.WorkflowServiceStubsOptions;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
 import io.temporal.testing.TestWorkflowRule;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerFactoryOptions;
 import io.temporal.worker.WorkerOptions;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.junit.After;
@@ -71,6 +81,10 @@ public class MetricsTest {
           .setWorkflowTypes(MetricsWorkflowImpl.class)
           .setMetricsScope(metricsScope)
           .setWorkerOptions(WorkerOptions.newBuilder().build())
+          .setWorkerFactoryOptions(
+              WorkerFactoryOptions.newBuilder()
+                  .setWorkerInterceptors(new LatencyWorkerInterceptor(registry))
+                  .build())
           .setActivityImplementations(new MetricsActivitiesImpl())
           .build();
 
@@ -138,6 +152,104 @@ public class MetricsTest {
     assertIntCounter(2, countMetricActivityRetriesForActivity("PerformA"));
   }
 
+  @Test
+  public void testLatencyHistograms() {
+    final MetricsWorkflow metricsWorkflow =
+        workflowClient.newWorkflowStub(
+            MetricsWorkflow.class,
+            WorkflowOptions.newBuilder()
+                .setTaskQueue(testWorkflowRule.getTaskQueue())
+                .validateBuildWithDefaults());
+
+    metricsWorkflow.exec("hello metrics");
+
+    assertEquals(2, activityExecutionTimer("PerformA", "failed").count());
+    assertEquals(1, activityExecutionTimer("PerformA", "completed").count());
+    assertEquals(4, activityExecutionTimer("PerformB", "failed").count());
+    assertEquals(1, activityExecutionTimer("PerformB", "completed").count());
+
+    Timer scheduleToStart =
+        registry
+            .get(LatencyWorkerInterceptor.ACTIVITY_SCHEDULE_TO_START)
+            .tag(LatencyWorkerInterceptor.WORKFLOW_TYPE_TAG, "MetricsWorkflow")
+            .tag(LatencyWorkerInterceptor.ACTIVITY_TYPE_TAG, "PerformB")
+            .timer();
+    assertEquals(5, scheduleToStart.count());
+
+    // the workflow sleeps for 5 seconds, measured in workflow time
+    Timer execution =
+        registry
+            .get(LatencyWorkerInterceptor.WORKFLOW_EXECUTION)
+            .tag(LatencyWorkerInterceptor.WORKFLOW_TYPE_TAG, "MetricsWorkflow")
+            .tag(LatencyWorkerInterceptor.OUTCOME_TAG, "completed")
+            .timer();
+    assertEquals(1, execution.count());
+    assertTrue(execution.totalTime(TimeUnit.SECONDS) >= 5);
+  }
+
+  @WorkflowInterface
+  public interface CountdownWorkflow {
+    @WorkflowMethod
+    void countdown(int runs);
+  }
+
+  public static class CountdownWorkflowImpl implements CountdownWorkflow {
+    @Override
+    public void countdown(int runs) {
+      if (runs > 1) {
+        Workflow.continueAsNew(runs - 1);
+      }
+    }
+  }
+
+  @Test
+  public void testContinuedAsNewOutcome() {
+    SimpleMeterRegistry countdownRegistry = new SimpleMeterRegistry();
+    TestWorkflowEnvironment testEnvironment =
+        TestWorkflowEnvironment.newInstance(
+            TestEnvironmentOptions.newBuilder()
+                .setWorkerFactoryOptions(
+                    WorkerFactoryOptions.newBuilder()
+                        .setWorkerInterceptors(new LatencyWorkerInterceptor(countdownRegistry))
+                        .build())
+                .build());
+    try {
+      Worker worker = testEnvironment.newWorker("Countdown");
+      worker.registerWorkflowImplementationTypes(CountdownWorkflowImpl.class);
+      testEnvironment.start();
+
+      CountdownWorkflow workflow =
+          testEnvironment
+              .getWorkflowClient()
+              .newWorkflowStub(
+                  CountdownWorkflow.class,
+                  WorkflowOptions.newBuilder().setTaskQueue("Countdown").build());
+      workflow.countdown(3);
+
+      assertEquals(2, executionTimer(countdownRegistry, "continued_as_new").count());
+      assertEquals(1, executionTimer(countdownRegistry, "completed").count());
+    } finally {
+      testEnvironment.close();
+      countdownRegistry.close();
+    }
+  }
+
+  private static Timer executionTimer(SimpleMeterRegistry registry, String outcome) {
+    return registry
+        .get(LatencyWorkerInterceptor.WORKFLOW_EXECUTION)
+        .tag(LatencyWorkerInterceptor.WORKFLOW_TYPE_TAG, "CountdownWorkflow")
+        .tag(LatencyWorkerInterceptor.OUTCOME_TAG, outcome)
+        .timer();
+  }
+
+  private Timer activityExecutionTimer(String activityType, String outcome) {
+    return registry
+        .get(LatencyWorkerInterceptor.ACTIVITY_EXECUTION)
+        .tag(LatencyWorkerInterceptor.ACTIVITY_TYPE_TAG, activityType)
+        .tag(LatencyWorkerInterceptor.OUTCOME_TAG, outcome)
+        .timer();
+  }
+
   @NotNull
   private Counter countMetricActivityRetriesForActivity(String performB) {
     final List<Tag> tags =
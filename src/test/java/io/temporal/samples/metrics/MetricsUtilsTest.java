@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsUtilsTest {
+
+  private static final int SERIES = 2000;
+
+  private final AtomicInteger scrapes = new AtomicInteger();
+  private final PrometheusMeterRegistry registry =
+      new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) {
+        @Override
+        public void scrape(Writer writer) throws IOException {
+          scrapes.incrementAndGet();
+          super.scrape(writer);
+        }
+      };
+  private HttpServer server;
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < SERIES; i++) {
+      registry.counter("test_requests", "id", String.valueOf(i)).increment(i);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+    registry.close();
+  }
+
+  @Test
+  public void testConcurrentScrapesShareSnapshot() throws Exception {
+    server = MetricsUtils.startPrometheusScrapeEndpoint(registry, 0, 4, 60_000);
+    int clients = 16;
+    int requestsPerClient = 20;
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    try {
+      List<Future<String>> responses = new ArrayList<>();
+      for (int i = 0; i < clients * requestsPerClient; i++) {
+        boolean gzip = i % 2 == 0;
+        responses.add(executor.submit(() -> scrape(gzip)));
+      }
+      String first = responses.get(0).get();
+      assertTrue(first.contains("test_requests_total{id=\"" + (SERIES - 1) + "\",}"));
+      for (Future<String> response : responses) {
+        assertEquals(first, response.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, scrapes.get());
+  }
+
+  @Test
+  public void testUncachedScrapeIsStreamed() throws Exception {
+    server = MetricsUtils.startPrometheusScrapeEndpoint(registry, 0, 1, 0);
+    String plain = scrape(false);
+    String gzipped = scrape(true);
+    assertTrue(plain.contains("test_requests_total{id=\"0\",}"));
+    assertEquals(plain, gzipped);
+    assertEquals(2, scrapes.get());
+  }
+
+  private String scrape(boolean gzip) throws IOException {
+    URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/prometheus");
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    if (gzip) {
+      connection.setRequestProperty("Accept-Encoding", "gzip");
+    }
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals(gzip, "gzip".equals(connection.getContentEncoding()));
+      InputStream in = connection.getInputStream();
+      try (InputStream body = gzip ? new GZIPInputStream(in) : in) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF_8);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.temporal.client.WorkflowClient;
+import io.temporal.worker.WorkerFactoryOptions;
+import io.temporal.worker.WorkerOptions;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+
+public class WorkerConfigTest {
+
+  @Test
+  public void testLoadsDefaultFileFromClasspath() {
+    WorkerConfig config = WorkerConfig.load(WorkerConfig.DEFAULT_CONFIG_FILE);
+    assertEquals(MetricsWorker.DEFAULT_TASK_QUEUE_NAME, config.getTaskQueue());
+    assertEquals(8080, config.getScrapePort());
+    assertEquals(600, config.getWorkflowCacheSize());
+  }
+
+  @Test
+  public void testAppliesSettingsToOptions() {
+    BaseConfiguration configuration = new BaseConfiguration();
+    configuration.setProperty("workflowPollThreadCount", "3");
+    configuration.setProperty("activityPollThreadCount", "7");
+    configuration.setProperty("maxConcurrentWorkflowTaskExecutionSize", "11");
+    configuration.setProperty("maxConcurrentActivityExecutionSize", "13");
+    configuration.setProperty("workflowCacheSize", "17");
+    configuration.setProperty("maxWorkflowThreadCount", "19");
+    WorkerConfig config = new WorkerConfig(configuration);
+
+    WorkerOptions workerOptions = config.newWorkerOptions();
+    assertEquals(3, workerOptions.getWorkflowPollThreadCount());
+    assertEquals(7, workerOptions.getActivityPollThreadCount());
+    assertEquals(11, workerOptions.getMaxConcurrentWorkflowTaskExecutionSize());
+    assertEquals(13, workerOptions.getMaxConcurrentActivityExecutionSize());
+    assertEquals(
+        WorkerConfig.DEFAULT_MAX_CONCURRENT_EXECUTION_SIZE,
+        workerOptions.getMaxConcurrentLocalActivityExecutionSize());
+
+    WorkerFactoryOptions factoryOptions =
+        config
+            .newWorkerFactoryBuilder(mock(WorkflowClient.class))
+            .setMeterRegistry(new SimpleMeterRegistry())
+            .buildOptions();
+    assertEquals(17, factoryOptions.getWorkflowCacheSize());
+    assertEquals(19, factoryOptions.getMaxWorkflowThreadCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingFile() {
+    WorkerConfig.load("metrics/missing.properties");
+  }
+}
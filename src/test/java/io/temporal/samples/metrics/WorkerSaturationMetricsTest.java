@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.temporal.serviceclient.MetricsTag;
+import io.temporal.worker.MetricsType;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.junit.Test;
+
+public class WorkerSaturationMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  public void testSlotUtilization() {
+    BaseConfiguration configuration = new BaseConfiguration();
+    configuration.setProperty("maxConcurrentActivityExecutionSize", "10");
+    WorkerSaturationMetrics.register(registry, new WorkerConfig(configuration));
+
+    assertTrue(Double.isNaN(slotUtilization("ActivityWorker")));
+
+    AtomicInteger available = new AtomicInteger(10);
+    registry.gauge(
+        MetricsType.WORKER_TASK_SLOTS_AVAILABLE,
+        Collections.singletonList(Tag.of(MetricsTag.WORKER_TYPE, "ActivityWorker")),
+        available);
+    assertEquals(0, slotUtilization("ActivityWorker"), 0.001);
+    available.set(2);
+    assertEquals(0.8, slotUtilization("ActivityWorker"), 0.001);
+  }
+
+  private double slotUtilization(String workerType) {
+    return registry
+        .get(WorkerSaturationMetrics.SLOT_UTILIZATION)
+        .tag(MetricsTag.WORKER_TYPE, workerType)
+        .gauge()
+        .value();
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.moneybatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.CaseFormat;
+import com.google.protobuf.util.JsonFormat;
+import io.temporal.api.common.v1.WorkflowExecution;
+import io.temporal.api.enums.v1.EventType;
+import io.temporal.api.history.v1.History;
+import io.temporal.api.history.v1.HistoryEvent;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.testing.TestWorkflowRule;
+import io.temporal.testing.WorkflowReplayer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Checks that continue-as-new keeps the history of every run, and so its replay time, bounded
+ * independently of the batch size, and that every run replays. The default batch sizes keep the
+ * test within the time of the regular build, the 100k case runs with
+ * -Dmoneybatch.loadTest.batchSizes=1000,10000,100000. Add -Dmoneybatch.loadTest.printReplayTime
+ * to print the median run replay time of each batch size.
+ */
+public class TransferWorkflowLoadTest {
+
+  private static final int MAX_BATCH_SIZE = 50;
+  private static final int MAX_HISTORY_LENGTH = 500;
+  // a run can grow by a signal plus a workflow task per withdrawal until the next check
+  private static final int MAX_RUN_HISTORY_LENGTH = MAX_HISTORY_LENGTH + 4 * MAX_BATCH_SIZE + 20;
+  private static final String TASK_QUEUE_KIND_PREFIX = "TASK_QUEUE_KIND_";
+  private static final String EVENT_TYPE_PREFIX = "EVENT_TYPE_";
+
+  private static final AtomicInteger deposited = new AtomicInteger();
+
+  public static class LoadTestTransferWorkflowImpl extends AccountTransferWorkflowImpl {
+    public LoadTestTransferWorkflowImpl() {
+      super(MAX_BATCH_SIZE, Duration.ofSeconds(1), MAX_HISTORY_LENGTH);
+    }
+  }
+
+  public static class NoopAccount implements Account {
+    @Override
+    public void deposit(String accountId, String referenceId, int amountCents) {
+      deposited.set(amountCents);
+    }
+
+    @Override
+    public void withdraw(String accountId, String referenceId, int amountCents) {}
+
+    @Override
+    public void withdrawAll(List<Withdrawal> withdrawals) {}
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(LoadTestTransferWorkflowImpl.class)
+          .setActivityImplementations(new NoopAccount())
+          .build();
+
+  @Test
+  public void testRunHistoryStaysBounded() throws Exception {
+    List<Integer> batchSizes =
+        Stream.of(System.getProperty("moneybatch.loadTest.batchSizes", "200,1000").split(","))
+            .map(String::trim)
+            .map(Integer::valueOf)
+            .sorted()
+            .collect(Collectors.toList());
+
+    boolean printReplayTime = Boolean.getBoolean("moneybatch.loadTest.printReplayTime");
+    boolean warmedUp = false;
+    for (int batchSize : batchSizes) {
+      String to = "account-" + batchSize;
+      AccountTransferWorkflow transferWorkflow =
+          testWorkflowRule
+              .getWorkflowClient()
+              .newWorkflowStub(
+                  AccountTransferWorkflow.class,
+                  WorkflowOptions.newBuilder()
+                      .setTaskQueue(testWorkflowRule.getTaskQueue())
+                      .setWorkflowId(to)
+                      .build());
+      WorkflowClient.start(transferWorkflow::deposit, to, batchSize, null);
+      for (int i = 0; i < batchSize; i++) {
+        transferWorkflow.withdraw("account1", UUID.randomUUID().toString(), 1);
+      }
+      WorkflowStub.fromTyped(transferWorkflow).getResult(Void.class);
+      assertEquals(batchSize, deposited.get());
+
+      // replay every run of the chain
+      WorkflowExecution execution = WorkflowStub.fromTyped(transferWorkflow).getExecution();
+      List<Long> replayNanos = new ArrayList<>();
+      int maxRunHistoryLength = 0;
+      while (true) {
+        History history = testWorkflowRule.getHistory(execution);
+        String json = toHistoryJson(history);
+        if (printReplayTime && !warmedUp) {
+          // keep class loading and JIT compilation out of the first measurement
+          WorkflowReplayer.replayWorkflowExecution(json, LoadTestTransferWorkflowImpl.class);
+          warmedUp = true;
+        }
+        long replayStart = System.nanoTime();
+        WorkflowReplayer.replayWorkflowExecution(json, LoadTestTransferWorkflowImpl.class);
+        replayNanos.add(System.nanoTime() - replayStart);
+        maxRunHistoryLength = Math.max(maxRunHistoryLength, history.getEventsCount());
+
+        HistoryEvent lastEvent = history.getEvents(history.getEventsCount() - 1);
+        if (lastEvent.getEventType() != EventType.EVENT_TYPE_WORKFLOW_EXECUTION_CONTINUED_AS_NEW) {
+          break;
+        }
+        String nextRunId =
+            lastEvent.getWorkflowExecutionContinuedAsNewEventAttributes().getNewExecutionRunId();
+        execution = WorkflowExecution.newBuilder().setWorkflowId(to).setRunId(nextRunId).build();
+      }
+
+      if (printReplayTime) {
+        Collections.sort(replayNanos);
+        System.out.printf(
+            "Batch size %d: %d runs, max run history length %d, median run replay time %d ms%n",
+            batchSize,
+            replayNanos.size(),
+            maxRunHistoryLength,
+            replayNanos.get(replayNanos.size() / 2) / 1_000_000);
+      }
+      assertTrue(
+          "Run history length " + maxRunHistoryLength + " exceeds " + MAX_RUN_HISTORY_LENGTH,
+          maxRunHistoryLength <= MAX_RUN_HISTORY_LENGTH);
+    }
+  }
+
+  /**
+   * Converts a history to the JSON format of tctl and the Web UI, which is what
+   * WorkflowReplayer.replayWorkflowExecution(String, ...) reads. It differs from the protobuf JSON
+   * mapping in its event type and task queue kind names.
+   */
+  private static String toHistoryJson(History history) throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode root = mapper.readTree(JsonFormat.printer().print(history));
+    simplifyEnumNames(root);
+    return mapper.writeValueAsString(root);
+  }
+
+  private static void simplifyEnumNames(JsonNode node) {
+    if (node.isArray()) {
+      node.forEach(TransferWorkflowLoadTest::simplifyEnumNames);
+      return;
+    }
+    if (!node.isObject()) {
+      return;
+    }
+    Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (field.getKey().equals("eventType")) {
+        field.setValue(simplifiedEnumName(field.getValue(), EVENT_TYPE_PREFIX));
+      } else if (field.getKey().equals("kind")) {
+        field.setValue(simplifiedEnumName(field.getValue(), TASK_QUEUE_KIND_PREFIX));
+      } else {
+        simplifyEnumNames(field.getValue());
+      }
+    }
+  }
+
+  private static JsonNode simplifiedEnumName(JsonNode value, String prefix) {
+    String name = value.asText();
+    if (!name.startsWith(prefix)) {
+      return value;
+    }
+    String simplified = name.substring(prefix.length());
+    return TextNode.valueOf(CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, simplified));
+  }
+}
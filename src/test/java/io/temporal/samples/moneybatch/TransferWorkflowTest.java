@@ -21,6 +21,7 @@ package io.temporal.samples.moneybatch;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -28,6 +29,7 @@ import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.client.WorkflowStub;
 import io.temporal.testing.TestWorkflowRule;
+import java.time.Duration;
 import java.util.Random;
 import java.util.UUID;
 import org.junit.Rule;
@@ -37,13 +39,13 @@ public class TransferWorkflowTest {
 
   @Rule
   public TestWorkflowRule testWorkflowRule =
-      TestWorkflowRule.newBuilder()
-          .setWorkflowTypes(AccountTransferWorkflowImpl.class)
-          .setDoNotStart(true)
-          .build();
+      TestWorkflowRule.newBuilder().setDoNotStart(true).build();
 
   @Test
   public void testTransfer() {
+    testWorkflowRule
+        .getWorker()
+        .registerWorkflowImplementationTypes(AccountTransferWorkflowImpl.class);
     Account activities = mock(Account.class);
     testWorkflowRule.getWorker().registerActivitiesImplementations(activities);
     testWorkflowRule.getTestEnvironment().start();
@@ -60,7 +62,7 @@ public class TransferWorkflowTest {
         testWorkflowRule
             .getWorkflowClient()
             .newWorkflowStub(AccountTransferWorkflow.class, options);
-    WorkflowClient.start(transferWorkflow::deposit, to, batchSize);
+    WorkflowClient.start(transferWorkflow::deposit, to, batchSize, null);
     Random random = new Random();
     int total = 0;
     for (int i = 0; i < batchSize; i++) {
@@ -74,4 +76,47 @@ public class TransferWorkflowTest {
 
     testWorkflowRule.getTestEnvironment().shutdown();
   }
+
+  @Test
+  public void testBatchedTransfer() {
+    // batches of up to 4 withdrawals, a history length of 4 continues as new after every batch
+    testWorkflowRule
+        .getWorker()
+        .addWorkflowImplementationFactory(
+            AccountTransferWorkflow.class,
+            () -> new AccountTransferWorkflowImpl(4, Duration.ofSeconds(1), 4));
+    Account activities = mock(Account.class);
+    testWorkflowRule.getWorker().registerActivitiesImplementations(activities);
+    testWorkflowRule.getTestEnvironment().start();
+
+    String from = "account1";
+    String to = "account2";
+    int batchSize = 10;
+    WorkflowOptions options =
+        WorkflowOptions.newBuilder()
+            .setTaskQueue(testWorkflowRule.getTaskQueue())
+            .setWorkflowId(to)
+            .build();
+    AccountTransferWorkflow transferWorkflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(AccountTransferWorkflow.class, options);
+    WorkflowClient.start(transferWorkflow::deposit, to, batchSize, null);
+    Random random = new Random();
+    int total = 0;
+    for (int i = 0; i < batchSize; i++) {
+      int amountCents = random.nextInt(1000);
+      String referenceId = UUID.randomUUID().toString();
+      transferWorkflow.withdraw(from, referenceId, amountCents);
+      // duplicates are ignored
+      transferWorkflow.withdraw(from, referenceId, amountCents);
+      total += amountCents;
+    }
+    // Wait for the last run to finish
+    WorkflowStub.fromTyped(transferWorkflow).getResult(Void.class);
+    verify(activities, atLeastOnce()).withdrawAll(any());
+    verify(activities).deposit(eq("account2"), any(), eq(total));
+
+    testWorkflowRule.getTestEnvironment().shutdown();
+  }
 }
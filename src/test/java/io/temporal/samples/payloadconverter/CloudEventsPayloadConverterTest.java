@@ -19,24 +19,36 @@
 
 package io.temporal.samples.payloadconverter;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import io.cloudevents.jackson.JsonCloudEventData;
+import io.temporal.api.common.v1.Payload;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.common.converter.DataConverterException;
 import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.samples.payloadconverter.cloudevents.CEWorkflow;
 import io.temporal.samples.payloadconverter.cloudevents.CEWorkflowImpl;
 import io.temporal.samples.payloadconverter.cloudevents.CloudEventsPayloadConverter;
+import io.temporal.samples.payloadconverter.cloudevents.EventAggregate;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
 import io.temporal.testing.TestWorkflowRule;
+import io.temporal.worker.Worker;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -78,7 +90,7 @@ public class CloudEventsPayloadConverterTest {
     CEWorkflow workflow =
         testWorkflowRule.getWorkflowClient().newWorkflowStub(CEWorkflow.class, workflowOptions);
     // start async
-    WorkflowClient.start(workflow::exec, cloudEventList.get(0));
+    WorkflowClient.start(workflow::exec, cloudEventList.get(0), null);
 
     for (int j = 1; j < 10; j++) {
       workflow.addEvent(cloudEventList.get(j));
@@ -91,4 +103,149 @@ public class CloudEventsPayloadConverterTest {
     assertNotNull(result);
     assertEquals("hello 9", result);
   }
+
+  @Test
+  public void testBoundedWindowAcrossContinueAsNew() {
+    TestWorkflowEnvironment testEnvironment =
+        TestWorkflowEnvironment.newInstance(
+            TestEnvironmentOptions.newBuilder()
+                .setWorkflowClientOptions(workflowClientOptions)
+                .build());
+    try {
+      Worker worker = testEnvironment.newWorker("CloudEventsWindow");
+      // window of 5 events, continue as new every few signals, complete after 30 events
+      worker.addWorkflowImplementationFactory(
+          CEWorkflow.class, () -> new CEWorkflowImpl(5, 20, 30));
+      testEnvironment.start();
+
+      CEWorkflow workflow =
+          testEnvironment
+              .getWorkflowClient()
+              .newWorkflowStub(
+                  CEWorkflow.class,
+                  WorkflowOptions.newBuilder()
+                      .setWorkflowId("ce-window")
+                      .setTaskQueue("CloudEventsWindow")
+                      .build());
+      WorkflowClient.start(workflow::exec, newEvent(0), null);
+      for (int i = 1; i < 30; i++) {
+        workflow.addEvent(newEvent(i));
+      }
+      WorkflowStub.fromTyped(workflow).getResult(Void.class);
+
+      EventAggregate aggregate = workflow.getAggregate();
+      assertEquals(30, aggregate.getCount());
+      assertEquals(Long.valueOf(30), aggregate.getCountByType().get("example.demo"));
+      assertEquals("129", workflow.getLastEvent().getId());
+
+      // only the most recent events of the last run are kept
+      List<CloudEvent> events = workflow.getEvents(0, 100);
+      assertTrue(events.size() <= 5);
+      assertEquals("129", events.get(events.size() - 1).getId());
+      // sequence numbers continue across runs
+      assertEquals("129", workflow.getEvents(29, 1).get(0).getId());
+    } finally {
+      testEnvironment.close();
+    }
+  }
+
+  private static CloudEvent newEvent(int i) {
+    return CloudEventBuilder.v1()
+        .withId(String.valueOf(100 + i))
+        .withType("example.demo")
+        .withSource(URI.create("http://temporal.io"))
+        .withData(
+            "application/json",
+            ("{\n" + "\"greeting\": \"hello " + i + "\"\n" + "}")
+                .getBytes(Charset.defaultCharset()))
+        .build();
+  }
+
+  @Test
+  public void testBinaryEncodingRoundTrip() {
+    CloudEventsPayloadConverter converter =
+        new CloudEventsPayloadConverter(CloudEventsPayloadConverter.Encoding.BINARY);
+    CloudEvent event =
+        CloudEventBuilder.v1()
+            .withId("100")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withTime(OffsetDateTime.of(2022, 11, 1, 12, 30, 0, 0, ZoneOffset.UTC))
+            .withExtension("sequence", 42)
+            .withExtension("partition", "p1")
+            .withData("application/octet-stream", new byte[] {0, 1, 2, (byte) 255})
+            .build();
+
+    Payload payload = converter.toData(event).get();
+    CloudEvent result = converter.fromData(payload, CloudEvent.class, CloudEvent.class);
+
+    assertEquals(event.getId(), result.getId());
+    assertEquals(event.getType(), result.getType());
+    assertEquals(event.getSource(), result.getSource());
+    assertEquals(event.getTime(), result.getTime());
+    assertEquals(event.getDataContentType(), result.getDataContentType());
+    assertEquals(42, result.getExtension("sequence"));
+    assertEquals("p1", result.getExtension("partition"));
+    assertArrayEquals(event.getData().toBytes(), result.getData().toBytes());
+  }
+
+  @Test
+  public void testBinaryEncodingIsSmallerThanJson() {
+    CloudEventsPayloadConverter json = new CloudEventsPayloadConverter();
+    CloudEventsPayloadConverter binary =
+        new CloudEventsPayloadConverter(CloudEventsPayloadConverter.Encoding.BINARY);
+    byte[] data = new byte[4096];
+    new Random(42).nextBytes(data);
+    CloudEvent event =
+        CloudEventBuilder.v1()
+            .withId("100")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withData("application/octet-stream", data)
+            .build();
+
+    int jsonSize = json.toData(event).get().getSerializedSize();
+    int binarySize = binary.toData(event).get().getSerializedSize();
+
+    // the JSON format base64 encodes binary data, which adds a third
+    assertTrue(binarySize < data.length + 200);
+    assertTrue(jsonSize > data.length * 4 / 3);
+  }
+
+  @Test
+  public void testBinaryEncodingKeepsNonAsciiStrings() {
+    CloudEventsPayloadConverter converter =
+        new CloudEventsPayloadConverter(CloudEventsPayloadConverter.Encoding.BINARY);
+    // NUL and supplementary characters differ between modified and standard UTF-8
+    String subject = "caf\u00e9 \u0000 \ud83d\ude00";
+    CloudEvent event =
+        CloudEventBuilder.v1()
+            .withId("100")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withSubject(subject)
+            .withExtension("label", subject)
+            .build();
+
+    Payload payload = converter.toData(event).get();
+    assertTrue(payload.getData().toStringUtf8().contains(subject));
+    CloudEvent result = converter.fromData(payload, CloudEvent.class, CloudEvent.class);
+    assertEquals(subject, result.getSubject());
+    assertEquals(subject, result.getExtension("label"));
+  }
+
+  @Test(expected = DataConverterException.class)
+  public void testBinaryEncodingRejectsNonIntegerNumberExtensions() {
+    CloudEventsPayloadConverter converter =
+        new CloudEventsPayloadConverter(CloudEventsPayloadConverter.Encoding.BINARY);
+    CloudEvent event =
+        CloudEventBuilder.v1()
+            .withId("100")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withExtension("offset", Long.MAX_VALUE)
+            .build();
+
+    converter.toData(event);
+  }
 }
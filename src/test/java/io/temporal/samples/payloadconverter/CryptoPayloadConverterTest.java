@@ -25,10 +25,12 @@ import com.codingrodent.jackson.crypto.CryptoModule;
 import com.codingrodent.jackson.crypto.EncryptionService;
 import com.codingrodent.jackson.crypto.PasswordCryptoContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.api.common.v1.Payload;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.common.converter.JacksonJsonPayloadConverter;
+import io.temporal.samples.payloadconverter.crypto.CryptoPayloadConverterFactory;
 import io.temporal.samples.payloadconverter.crypto.CryptoWorkflow;
 import io.temporal.samples.payloadconverter.crypto.CryptoWorkflowImpl;
 import io.temporal.samples.payloadconverter.crypto.MyCustomer;
@@ -63,6 +65,20 @@ public class CryptoPayloadConverterTest {
     assertTrue(customer.isApproved());
   }
 
+  @Test
+  public void testConverterFactoryReusesConverters() {
+    JacksonJsonPayloadConverter converter =
+        CryptoPayloadConverterFactory.getConverter(encryptDecryptPassword);
+    assertSame(converter, CryptoPayloadConverterFactory.getConverter(encryptDecryptPassword));
+    assertNotSame(converter, CryptoPayloadConverterFactory.getConverter("anotherPassword"));
+
+    Payload payload = converter.toData(new MyCustomer("John", 22)).get();
+    assertFalse(payload.getData().toStringUtf8().contains("John"));
+    MyCustomer customer = converter.fromData(payload, MyCustomer.class, MyCustomer.class);
+    assertEquals("John", customer.getName());
+    assertEquals(22, customer.getAge());
+  }
+
   private JacksonJsonPayloadConverter getCryptoJacksonJsonPayloadConverter() {
     ObjectMapper objectMapper = new ObjectMapper();
     // Create the Crypto Context (password based)
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedBatchSpanProcessorTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final BlockingExporter exporter = new BlockingExporter();
+  private SdkTracerProvider tracerProvider;
+
+  @After
+  public void tearDown() {
+    exporter.release.countDown();
+    tracerProvider.close();
+  }
+
+  @Test
+  public void testDropsSpansWhenQueueIsFull() throws InterruptedException {
+    BoundedBatchSpanProcessor processor =
+        new BoundedBatchSpanProcessor(exporter, 2, 1, Duration.ofHours(1), registry);
+    tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+    Tracer tracer = tracerProvider.get("test");
+
+    // the first span fills a batch, its export blocks the export thread
+    tracer.spanBuilder("first").startSpan().end();
+    assertTrue(exporter.exporting.await(10, TimeUnit.SECONDS));
+
+    for (int i = 0; i < 4; i++) {
+      tracer.spanBuilder("queued-" + i).startSpan().end();
+    }
+    assertEquals(2, count(BoundedBatchSpanProcessor.DROPPED), 0);
+    assertEquals(2, registry.get(BoundedBatchSpanProcessor.QUEUE_SIZE).gauge().value(), 0);
+
+    exporter.release.countDown();
+    processor.forceFlush().join(10, TimeUnit.SECONDS);
+    assertEquals(3, exporter.spans.size());
+    assertEquals(3, count(BoundedBatchSpanProcessor.EXPORTED), 0);
+  }
+
+  @Test
+  public void testOfferTimeoutWaitsForSpace() throws Exception {
+    BoundedBatchSpanProcessor processor =
+        new BoundedBatchSpanProcessor(
+            exporter, 1, 1, Duration.ofHours(1), Duration.ofSeconds(10), registry);
+    tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+    Tracer tracer = tracerProvider.get("test");
+
+    tracer.spanBuilder("first").startSpan().end();
+    assertTrue(exporter.exporting.await(10, TimeUnit.SECONDS));
+    tracer.spanBuilder("second").startSpan().end();
+
+    // the queue is full, ending the third span waits until the exporter catches up
+    Thread ending = new Thread(() -> tracer.spanBuilder("third").startSpan().end());
+    ending.start();
+    ending.join(200);
+    assertTrue(ending.isAlive());
+
+    exporter.release.countDown();
+    ending.join(TimeUnit.SECONDS.toMillis(10));
+    processor.forceFlush().join(10, TimeUnit.SECONDS);
+    assertEquals(0, count(BoundedBatchSpanProcessor.DROPPED), 0);
+    assertEquals(3, exporter.spans.size());
+  }
+
+  @Test
+  public void testExportsAfterScheduleDelay() throws InterruptedException {
+    exporter.release.countDown();
+    BoundedBatchSpanProcessor processor =
+        new BoundedBatchSpanProcessor(exporter, 16, 8, Duration.ofMillis(50), registry);
+    tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+
+    tracerProvider.get("test").spanBuilder("single").startSpan().end();
+    assertTrue(exporter.exported.await(10, TimeUnit.SECONDS));
+    assertEquals("single", exporter.spans.get(0).getName());
+  }
+
+  private double count(String name) {
+    return registry.find(name).counters().stream().mapToDouble(c -> c.count()).sum();
+  }
+
+  private static class BlockingExporter implements SpanExporter {
+    private final List<SpanData> spans = new CopyOnWriteArrayList<>();
+    private final CountDownLatch exporting = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch exported = new CountDownLatch(1);
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> batch) {
+      exporting.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return CompletableResultCode.ofFailure();
+      }
+      spans.addAll(batch);
+      exported.countDown();
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowClientOptions;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.opentracing.OpenTracingClientInterceptor;
+import io.temporal.opentracing.OpenTracingOptions;
+import io.temporal.opentracing.OpenTracingWorkerInterceptor;
+import io.temporal.samples.tracing.workflow.TracingActivitiesImpl;
+import io.temporal.samples.tracing.workflow.TracingChildWorkflowImpl;
+import io.temporal.samples.tracing.workflow.TracingWorkflow;
+import io.temporal.samples.tracing.workflow.TracingWorkflowImpl;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.testing.TestWorkflowRule;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerFactoryOptions;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs the sample with an OpenTelemetry pipeline that exports to memory, no Jaeger needed. */
+public class OpenTelemetryTracingTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final InMemorySpanCollector collector = new InMemorySpanCollector();
+  private final SdkTracerProvider tracerProvider =
+      JaegerUtils.newTracerProvider(
+          new BoundedBatchSpanProcessor(
+              collector,
+              BoundedBatchSpanProcessor.DEFAULT_MAX_QUEUE_SIZE,
+              BoundedBatchSpanProcessor.DEFAULT_MAX_BATCH_SIZE,
+              Duration.ofMillis(10),
+              registry),
+          SamplingConfig.alwaysOn());
+  private final OpenTracingOptions options = JaegerUtils.getOpenTelemetryOptions(tracerProvider);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowClientOptions(
+              WorkflowClientOptions.newBuilder()
+                  .setInterceptors(new OpenTracingClientInterceptor(options))
+                  .validateAndBuildWithDefaults())
+          .setWorkerFactoryOptions(
+              WorkerFactoryOptions.newBuilder()
+                  .setWorkerInterceptors(new OpenTracingWorkerInterceptor(options))
+                  .validateAndBuildWithDefaults())
+          .setWorkflowTypes(TracingWorkflowImpl.class, TracingChildWorkflowImpl.class)
+          .setActivityImplementations(new TracingActivitiesImpl())
+          .build();
+
+  @After
+  public void tearDown() {
+    tracerProvider.close();
+  }
+
+  @Test
+  public void testCollectsOneTraceInMemory() {
+    assertEquals("Hola John", runWorkflow());
+    tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+
+    List<SpanData> spans = collector.getSpans();
+    assertEquals(6, spans.size());
+    // the worker spans continue the trace started by the client
+    assertEquals(1, spans.stream().map(SpanData::getTraceId).distinct().count());
+    List<String> names = spans.stream().map(SpanData::getName).collect(Collectors.toList());
+    assertTrue(names.toString(), names.contains("RunActivity:Greet"));
+  }
+
+  @Test
+  public void testFileTypeWritesOneLinePerSpan() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("spans.jsonl");
+    SimpleMeterRegistry fileRegistry = new SimpleMeterRegistry();
+    OpenTracingOptions fileOptions;
+    System.setProperty(JaegerUtils.SPAN_FILE_PROPERTY, file.toString());
+    System.setProperty(BoundedBatchSpanProcessor.SCHEDULE_DELAY_MILLIS_PROPERTY, "10");
+    try {
+      fileOptions = JaegerUtils.getJaegerOptions("File", SamplingConfig.alwaysOn(), fileRegistry);
+    } finally {
+      System.clearProperty(JaegerUtils.SPAN_FILE_PROPERTY);
+      System.clearProperty(BoundedBatchSpanProcessor.SCHEDULE_DELAY_MILLIS_PROPERTY);
+    }
+
+    TestWorkflowEnvironment testEnvironment =
+        TestWorkflowEnvironment.newInstance(
+            TestEnvironmentOptions.newBuilder()
+                .setWorkflowClientOptions(
+                    WorkflowClientOptions.newBuilder()
+                        .setInterceptors(new OpenTracingClientInterceptor(fileOptions))
+                        .validateAndBuildWithDefaults())
+                .setWorkerFactoryOptions(
+                    WorkerFactoryOptions.newBuilder()
+                        .setWorkerInterceptors(new OpenTracingWorkerInterceptor(fileOptions))
+                        .validateAndBuildWithDefaults())
+                .build());
+    try {
+      Worker worker = testEnvironment.newWorker(testWorkflowRule.getTaskQueue());
+      worker.registerWorkflowImplementationTypes(
+          TracingWorkflowImpl.class, TracingChildWorkflowImpl.class);
+      worker.registerActivitiesImplementations(new TracingActivitiesImpl());
+      testEnvironment.start();
+      assertEquals("Hola John", runWorkflow(testEnvironment.getWorkflowClient()));
+    } finally {
+      testEnvironment.close();
+    }
+
+    // the spans are written in the background, each batch is flushed before it is counted
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (exported(fileRegistry) < 6 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(6, lines.size());
+    for (String line : lines) {
+      assertTrue(line, line.startsWith("{\"traceId\":"));
+    }
+  }
+
+  private static double exported(SimpleMeterRegistry registry) {
+    return registry.find(BoundedBatchSpanProcessor.EXPORTED).counters().stream()
+        .mapToDouble(Counter::count)
+        .sum();
+  }
+
+  private String runWorkflow() {
+    return runWorkflow(testWorkflowRule.getWorkflowClient());
+  }
+
+  private String runWorkflow(WorkflowClient client) {
+    WorkflowOptions workflowOptions =
+        WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build();
+    TracingWorkflow workflow = client.newWorkflowStub(TracingWorkflow.class, workflowOptions);
+    WorkflowStub untyped = WorkflowStub.fromTyped(workflow);
+    untyped.signalWithStart("setLanguage", new Object[] {"Spanish"}, new Object[] {"John"});
+    return untyped.getResult(String.class);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2020 Temporal Technologies, Inc. All Rights Reserved
+ *
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package io.temporal.samples.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.temporal.samples.tracing.WorkflowTypeRateLimitingSampler.TokenBucket;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class WorkflowTypeRateLimitingSamplerTest {
+
+  private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+  @Test
+  public void testTokenBucketRefills() {
+    long now = 0;
+    TokenBucket bucket = new TokenBucket(2, now);
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now));
+
+    now += TimeUnit.MILLISECONDS.toNanos(500);
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now));
+
+    // an idle period doesn't build up more than one second of traces
+    now += TimeUnit.MINUTES.toNanos(1);
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now));
+  }
+
+  @Test
+  public void testLimitsEachWorkflowTypeSeparately() {
+    Sampler sampler = new WorkflowTypeRateLimitingSampler(1);
+    assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sample(sampler, "StartWorkflow:First"));
+    assertEquals(SamplingDecision.DROP, sample(sampler, "StartWorkflow:First"));
+    assertEquals(SamplingDecision.DROP, sample(sampler, "SignalWithStartWorkflow:First"));
+    assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sample(sampler, "StartWorkflow:Second"));
+  }
+
+  @Test
+  public void testChildSpansFollowTheRootDecision() {
+    Sampler sampler = SamplingConfig.rateLimiting(1).newOpenTelemetrySampler();
+    assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sample(sampler, "StartWorkflow:First"));
+    assertEquals(SamplingDecision.DROP, sample(sampler, "StartWorkflow:First"));
+  }
+
+  private static SamplingDecision sample(Sampler sampler, String spanName) {
+    return sampler
+        .shouldSample(
+            Context.root(),
+            TRACE_ID,
+            spanName,
+            SpanKind.CLIENT,
+            Attributes.empty(),
+            Collections.emptyList())
+        .getDecision();
+  }
+}